@@ -1,49 +1,106 @@
 package com.smartbus2plus.gateway.config;
 
+import com.smartbus2plus.gateway.filter.BulkheadGatewayFilterFactory;
+import com.smartbus2plus.gateway.filter.HedgedRequestGatewayFilterFactory;
+import com.smartbus2plus.gateway.filter.LoadSheddingFilter;
+import com.smartbus2plus.gateway.filter.ResponseCacheGatewayFilterFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.gateway.route.RouteLocator;
+import org.springframework.cloud.gateway.route.builder.GatewayFilterSpec;
 import org.springframework.cloud.gateway.route.builder.RouteLocatorBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+
+import java.time.Duration;
 
 /**
- * Gateway Route Configuration for SmartBus2+
+ * Gateway Route Configuration for SmartBus2+.
+ * Routes without a priority are NORMAL; LOW routes are shed first under load.
+ * HTTP routes are isolated by a bulkhead and a circuit breaker with a timeout, configured
+ * per route under gateway.resilience; WebSocket routes are long-lived and left out.
  */
 @Configuration
 public class GatewayConfig {
 
+    @Autowired
+    private ResponseCacheGatewayFilterFactory responseCache;
+
+    @Autowired
+    private BulkheadGatewayFilterFactory bulkhead;
+
+    @Autowired
+    private HedgedRequestGatewayFilterFactory hedgedRequest;
+
+    @Autowired
+    private ResilienceProperties resilienceProperties;
+
+    @Value("${gateway.cache.ttl.buses:60s}")
+    private Duration busesTtl;
+
+    @Value("${gateway.cache.ttl.schedules:300s}")
+    private Duration schedulesTtl;
+
     @Bean
     public RouteLocator customRouteLocator(RouteLocatorBuilder builder) {
         return builder.routes()
                 // Auth Service Routes
                 .route("auth-service", r -> r.path("/api/auth/**")
+                        .metadata(LoadSheddingFilter.PRIORITY_METADATA, LoadSheddingFilter.Priority.HIGH.name())
+                        .filters(f -> resilient(f, "auth-service"))
                         .uri("lb://auth-service"))
                 
+                // Cached public inventory reads; more specific routes must come first
+                .route("inventory-buses-cached", r -> r.method(HttpMethod.GET)
+                        .and().path("/api/inventory/buses", "/api/inventory/buses/**")
+                        .filters(f -> resilient(f.filter(responseCache.apply(c -> c.setTimeToLive(busesTtl))),
+                                "inventory-buses-cached"))
+                        .uri("lb://inventory-service"))
+                
+                .route("inventory-schedules-cached", r -> r.method(HttpMethod.GET)
+                        .and().path("/api/inventory/schedules/**")
+                        .filters(f -> resilient(f.filter(responseCache.apply(c -> c.setTimeToLive(schedulesTtl))),
+                                "inventory-schedules-cached"))
+                        .uri("lb://inventory-service"))
+                
                 // Inventory Service Routes
                 .route("inventory-service", r -> r.path("/api/inventory/**")
+                        .filters(f -> resilient(f, "inventory-service"))
                         .uri("lb://inventory-service"))
                 
                 // Booking Service Routes
                 .route("booking-service", r -> r.path("/api/booking/**")
+                        .metadata(LoadSheddingFilter.PRIORITY_METADATA, LoadSheddingFilter.Priority.HIGH.name())
+                        .filters(f -> resilient(f, "booking-service"))
                         .uri("lb://booking-service"))
                 
                 // Payment Service Routes
                 .route("payment-service", r -> r.path("/api/payment/**")
+                        .metadata(LoadSheddingFilter.PRIORITY_METADATA, LoadSheddingFilter.Priority.HIGH.name())
+                        .filters(f -> resilient(f, "payment-service"))
                         .uri("lb://payment-service"))
                 
                 // IoT Telemetry Service Routes
                 .route("iot-telemetry-service", r -> r.path("/api/iot/**")
+                        .filters(f -> resilient(f, "iot-telemetry-service"))
                         .uri("lb://iot-telemetry-service"))
                 
                 // RFID Gateway Service Routes
                 .route("rfid-gateway-service", r -> r.path("/api/rfid/**")
+                        .filters(f -> resilient(f, "rfid-gateway-service"))
                         .uri("lb://rfid-gateway-service"))
                 
                 // AI Assist Service Routes
                 .route("ai-assist-service", r -> r.path("/api/ai/**")
+                        .metadata(LoadSheddingFilter.PRIORITY_METADATA, LoadSheddingFilter.Priority.LOW.name())
+                        .filters(f -> resilient(f, "ai-assist-service"))
                         .uri("lb://ai-assist-service"))
                 
                 // Analytics Service Routes
                 .route("analytics-service", r -> r.path("/api/analytics/**")
+                        .metadata(LoadSheddingFilter.PRIORITY_METADATA, LoadSheddingFilter.Priority.LOW.name())
+                        .filters(f -> resilient(f, "analytics-service"))
                         .uri("lb://analytics-service"))
                 
                 // WebSocket Routes
@@ -58,5 +115,24 @@ public class GatewayConfig {
                 
                 .build();
     }
+
+    /**
+     * Bulkhead first, so requests over the limit are refused before they count against the
+     * circuit breaker. The hedge filter orders itself just before the response is written,
+     * so it wraps both; the breaker sees the first attempt, the hedge goes straight to the
+     * load balancer
+     */
+    private GatewayFilterSpec resilient(GatewayFilterSpec filters, String routeId) {
+        ResilienceProperties.Policy policy = resilienceProperties.policyFor(routeId);
+        filters.filter(bulkhead.apply(c -> {
+                    c.setName(routeId);
+                    c.setMaxConcurrent(policy.getMaxConcurrent());
+                }))
+                .circuitBreaker(c -> c.setName(routeId));
+        if (policy.getHedgeDelay() != null) {
+            filters.filter(hedgedRequest.apply(c -> c.setDelay(policy.getHedgeDelay())));
+        }
+        return filters;
+    }
 }
 
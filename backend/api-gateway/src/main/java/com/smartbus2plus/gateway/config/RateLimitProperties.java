@@ -0,0 +1,64 @@
+package com.smartbus2plus.gateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Token-bucket limits applied by the gateway, per route and per API key
+ */
+@Component
+@ConfigurationProperties(prefix = "gateway.rate-limit")
+public class RateLimitProperties {
+    
+    private boolean enabled = true;
+    
+    private Limit defaultLimit = new Limit(20, 40);
+    
+    // Route ID -> limit for each caller on that route
+    private Map<String, Limit> routes = new HashMap<>();
+    
+    // API key -> limit that replaces the route limit for callers presenting it
+    private Map<String, Limit> apiKeys = new HashMap<>();
+    
+    public Limit limitFor(String routeId, String apiKey) {
+        if (apiKey != null && apiKeys.containsKey(apiKey)) {
+            return apiKeys.get(apiKey);
+        }
+        return routes.getOrDefault(routeId, defaultLimit);
+    }
+    
+    // Getters and Setters
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    
+    public Limit getDefaultLimit() { return defaultLimit; }
+    public void setDefaultLimit(Limit defaultLimit) { this.defaultLimit = defaultLimit; }
+    
+    public Map<String, Limit> getRoutes() { return routes; }
+    public void setRoutes(Map<String, Limit> routes) { this.routes = routes; }
+    
+    public Map<String, Limit> getApiKeys() { return apiKeys; }
+    public void setApiKeys(Map<String, Limit> apiKeys) { this.apiKeys = apiKeys; }
+    
+    public static class Limit {
+        private double replenishRate; // tokens per second
+        private int burstCapacity;
+        
+        public Limit() {}
+        
+        public Limit(double replenishRate, int burstCapacity) {
+            this.replenishRate = replenishRate;
+            this.burstCapacity = burstCapacity;
+        }
+        
+        public double getReplenishRate() { return replenishRate; }
+        public void setReplenishRate(double replenishRate) { this.replenishRate = replenishRate; }
+        
+        public int getBurstCapacity() { return burstCapacity; }
+        public void setBurstCapacity(int burstCapacity) { this.burstCapacity = burstCapacity; }
+    }
+}
+
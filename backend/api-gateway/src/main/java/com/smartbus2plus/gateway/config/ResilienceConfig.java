@@ -0,0 +1,49 @@
+package com.smartbus2plus.gateway.config;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import org.springframework.cloud.circuitbreaker.resilience4j.ReactiveResilience4JCircuitBreakerFactory;
+import org.springframework.cloud.circuitbreaker.resilience4j.Resilience4JConfigBuilder;
+import org.springframework.cloud.client.circuitbreaker.Customizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Circuit breaker and time limiter settings for each route, named after the route ID
+ */
+@Configuration
+public class ResilienceConfig {
+    
+    @Bean
+    public Customizer<ReactiveResilience4JCircuitBreakerFactory> routeCircuitBreakers(ResilienceProperties properties) {
+        // Circuit breakers are named after their route, so each route picks up its own policy
+        return factory -> factory.configureDefault(id -> configFor(id, properties.policyFor(id)));
+    }
+    
+    private static Resilience4JConfigBuilder.Resilience4JCircuitBreakerConfiguration configFor(
+            String id, ResilienceProperties.Policy policy) {
+        return new Resilience4JConfigBuilder(id)
+                .circuitBreakerConfig(circuitBreakerConfig(policy))
+                .timeLimiterConfig(timeLimiterConfig(policy))
+                .build();
+    }
+    
+    private static CircuitBreakerConfig circuitBreakerConfig(ResilienceProperties.Policy policy) {
+        return CircuitBreakerConfig.custom()
+                .slidingWindowSize(policy.getSlidingWindowSize())
+                .minimumNumberOfCalls(Math.min(10, policy.getSlidingWindowSize()))
+                .failureRateThreshold(policy.getFailureRateThreshold())
+                .slowCallDurationThreshold(policy.getSlowCallDuration())
+                .slowCallRateThreshold(policy.getSlowCallRateThreshold())
+                .waitDurationInOpenState(policy.getWaitInOpenState())
+                .permittedNumberOfCallsInHalfOpenState(3)
+                .build();
+    }
+    
+    private static TimeLimiterConfig timeLimiterConfig(ResilienceProperties.Policy policy) {
+        return TimeLimiterConfig.custom()
+                .timeoutDuration(policy.getTimeout())
+                .build();
+    }
+}
+
@@ -0,0 +1,68 @@
+package com.smartbus2plus.gateway.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-route resilience policies: timeout, circuit breaker, concurrency limit and hedging
+ */
+@Component
+@ConfigurationProperties(prefix = "gateway.resilience")
+public class ResilienceProperties {
+    
+    private Policy defaultPolicy = new Policy();
+    
+    // Route ID -> policy; routes not listed use the default policy
+    private Map<String, Policy> routes = new HashMap<>();
+    
+    public Policy policyFor(String routeId) {
+        return routes.getOrDefault(routeId, defaultPolicy);
+    }
+    
+    // Getters and Setters
+    public Policy getDefaultPolicy() { return defaultPolicy; }
+    public void setDefaultPolicy(Policy defaultPolicy) { this.defaultPolicy = defaultPolicy; }
+    
+    public Map<String, Policy> getRoutes() { return routes; }
+    public void setRoutes(Map<String, Policy> routes) { this.routes = routes; }
+    
+    public static class Policy {
+        private Duration timeout = Duration.ofSeconds(10);
+        private float failureRateThreshold = 50;
+        private Duration slowCallDuration = Duration.ofSeconds(5);
+        private float slowCallRateThreshold = 80;
+        private int slidingWindowSize = 20;
+        private Duration waitInOpenState = Duration.ofSeconds(30);
+        private int maxConcurrent = 200;
+        private Duration hedgeDelay; // null disables hedging
+        
+        public Duration getTimeout() { return timeout; }
+        public void setTimeout(Duration timeout) { this.timeout = timeout; }
+        
+        public float getFailureRateThreshold() { return failureRateThreshold; }
+        public void setFailureRateThreshold(float failureRateThreshold) { this.failureRateThreshold = failureRateThreshold; }
+        
+        public Duration getSlowCallDuration() { return slowCallDuration; }
+        public void setSlowCallDuration(Duration slowCallDuration) { this.slowCallDuration = slowCallDuration; }
+        
+        public float getSlowCallRateThreshold() { return slowCallRateThreshold; }
+        public void setSlowCallRateThreshold(float slowCallRateThreshold) { this.slowCallRateThreshold = slowCallRateThreshold; }
+        
+        public int getSlidingWindowSize() { return slidingWindowSize; }
+        public void setSlidingWindowSize(int slidingWindowSize) { this.slidingWindowSize = slidingWindowSize; }
+        
+        public Duration getWaitInOpenState() { return waitInOpenState; }
+        public void setWaitInOpenState(Duration waitInOpenState) { this.waitInOpenState = waitInOpenState; }
+        
+        public int getMaxConcurrent() { return maxConcurrent; }
+        public void setMaxConcurrent(int maxConcurrent) { this.maxConcurrent = maxConcurrent; }
+        
+        public Duration getHedgeDelay() { return hedgeDelay; }
+        public void setHedgeDelay(Duration hedgeDelay) { this.hedgeDelay = hedgeDelay; }
+    }
+}
+
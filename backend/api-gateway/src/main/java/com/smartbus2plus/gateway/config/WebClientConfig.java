@@ -0,0 +1,20 @@
+package com.smartbus2plus.gateway.config;
+
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+
+/**
+ * WebClient for calls from the gateway itself to other services
+ */
+@Configuration
+public class WebClientConfig {
+    
+    @Bean
+    @LoadBalanced // Resolves service names such as auth-service through Eureka
+    public WebClient.Builder loadBalancedWebClientBuilder() {
+        return WebClient.builder();
+    }
+}
+
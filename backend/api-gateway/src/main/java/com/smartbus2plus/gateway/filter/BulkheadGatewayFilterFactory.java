@@ -0,0 +1,61 @@
+package com.smartbus2plus.gateway.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps the number of requests in flight to one route, so a slow service cannot take
+ * every shared connection and event-loop slot from the others. Requests over the cap
+ * are refused immediately with a 503 instead of queueing.
+ */
+@Component
+public class BulkheadGatewayFilterFactory extends AbstractGatewayFilterFactory<BulkheadGatewayFilterFactory.Config> {
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    public BulkheadGatewayFilterFactory() {
+        super(Config.class);
+    }
+    
+    @Override
+    public GatewayFilter apply(Config config) {
+        AtomicInteger inFlight = new AtomicInteger();
+        Gauge.builder("gateway.bulkhead.in-flight", inFlight, AtomicInteger::get)
+                .tag("route", config.getName())
+                .register(meterRegistry);
+        Counter rejected = Counter.builder("gateway.bulkhead.rejected")
+                .tag("route", config.getName())
+                .register(meterRegistry);
+        
+        return (exchange, chain) -> {
+            if (inFlight.incrementAndGet() > config.getMaxConcurrent()) {
+                inFlight.decrementAndGet();
+                rejected.increment();
+                exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                return exchange.getResponse().setComplete();
+            }
+            return chain.filter(exchange).doFinally(signal -> inFlight.decrementAndGet());
+        };
+    }
+    
+    public static class Config {
+        private String name;
+        private int maxConcurrent = 200;
+        
+        public String getName() { return name; }
+        public void setName(String name) { this.name = name; }
+        
+        public int getMaxConcurrent() { return maxConcurrent; }
+        public void setMaxConcurrent(int maxConcurrent) { this.maxConcurrent = maxConcurrent; }
+    }
+}
+
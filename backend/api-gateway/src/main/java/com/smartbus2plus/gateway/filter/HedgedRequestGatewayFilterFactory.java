@@ -0,0 +1,238 @@
+package com.smartbus2plus.gateway.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hedges idempotent reads. The first attempt goes through the normal routing filters and
+ * is streamed as usual; if its response has not started within the delay, a second one
+ * is sent through the load balancer, usually to another instance, and whichever response
+ * arrives first is returned while the other attempt is cancelled. Set the delay near the
+ * route's p95 latency so only the slow tail pays for the extra request.
+ * Only the hedge is buffered: a hedge body over the size limit drops out and the first
+ * attempt carries on streaming.
+ */
+@Component
+public class HedgedRequestGatewayFilterFactory extends AbstractGatewayFilterFactory<HedgedRequestGatewayFilterFactory.Config> {
+    
+    public static final int HEDGE_FILTER_ORDER = NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+    
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of(
+            "connection", "keep-alive", "proxy-authenticate", "proxy-authorization",
+            "te", "trailer", "transfer-encoding", "upgrade", "host", "content-length");
+    
+    @Autowired
+    private WebClient.Builder webClientBuilder;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${gateway.hedge.max-body-bytes:1048576}")
+    private int maxBodyBytes;
+    
+    private WebClient webClient;
+    
+    public HedgedRequestGatewayFilterFactory() {
+        super(Config.class);
+    }
+    
+    @PostConstruct
+    public void init() {
+        webClient = webClientBuilder.clone()
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxBodyBytes))
+                .build();
+    }
+    
+    @Override
+    public GatewayFilter apply(Config config) {
+        GatewayFilter filter = (exchange, chain) -> {
+            HttpMethod method = exchange.getRequest().getMethod();
+            Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+            if ((method != HttpMethod.GET && method != HttpMethod.HEAD) || route == null) {
+                return chain.filter(exchange);
+            }
+            
+            String routeId = route.getId();
+            AtomicBoolean claimed = new AtomicBoolean();
+            AtomicReference<Throwable> primaryError = new AtomicReference<>();
+            
+            // The first attempt claims the response once the routing filters start writing it
+            HedgedResponse response = new HedgedResponse(exchange.getResponse(), claimed);
+            Mono<Boolean> primary = chain.filter(exchange.mutate().response(response).build())
+                    .doOnError(primaryError::set)
+                    .thenReturn(true);
+            
+            Mono<Boolean> hedge = Mono.delay(config.getDelay())
+                    .filter(tick -> !claimed.get())
+                    .flatMap(tick -> {
+                        counter("gateway.hedge.sent", routeId).increment();
+                        return attempt(exchange, method, targetUri(route, exchange.getRequest()));
+                    })
+                    // A failed or oversized hedge leaves the first attempt to finish on its own
+                    .onErrorResume(error -> Mono.empty())
+                    .filter(upstream -> !upstream.getStatusCode().is5xxServerError())
+                    .filter(upstream -> claimed.compareAndSet(false, true))
+                    .flatMap(upstream -> {
+                        counter("gateway.hedge.won", routeId).increment();
+                        return write(exchange.getResponse(), upstream).thenReturn(true);
+                    });
+            
+            return Mono.firstWithValue(primary, hedge)
+                    // Neither attempt answered: surface the first attempt's own failure
+                    .onErrorMap(error -> primaryError.get() != null ? primaryError.get() : error)
+                    .then();
+        };
+        // Must wrap the response before NettyWriteResponseFilter writes the first attempt into it
+        return new OrderedGatewayFilter(filter, HEDGE_FILTER_ORDER);
+    }
+    
+    private Mono<ResponseEntity<byte[]>> attempt(ServerWebExchange exchange, HttpMethod method, URI target) {
+        return webClient.method(method)
+                .uri(target)
+                .headers(headers -> copyRequestHeaders(exchange, headers))
+                .exchangeToMono(response -> response.toEntity(byte[].class));
+    }
+    
+    private static URI targetUri(Route route, ServerHttpRequest request) {
+        // lb://service-name is resolved by the load-balanced WebClient as http://service-name
+        URI routeUri = route.getUri();
+        String scheme = "lb".equals(routeUri.getScheme()) ? "http" : routeUri.getScheme();
+        return UriComponentsBuilder.newInstance()
+                .scheme(scheme)
+                .host(routeUri.getHost())
+                .port(routeUri.getPort())
+                .replacePath(request.getURI().getRawPath())
+                .replaceQuery(request.getURI().getRawQuery())
+                .build(true)
+                .toUri();
+    }
+    
+    private static void copyRequestHeaders(ServerWebExchange exchange, HttpHeaders headers) {
+        exchange.getRequest().getHeaders().forEach((name, values) -> {
+            if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase())) {
+                headers.addAll(name, values);
+            }
+        });
+        if (exchange.getRequest().getRemoteAddress() != null) {
+            // Extend the existing chain, as the routing filters do for the first attempt
+            String client = exchange.getRequest().getRemoteAddress().getAddress().getHostAddress();
+            String forwarded = headers.getFirst("X-Forwarded-For");
+            headers.set("X-Forwarded-For", forwarded != null ? forwarded + ", " + client : client);
+        }
+    }
+    
+    private static Mono<Void> write(ServerHttpResponse response, ResponseEntity<byte[]> upstream) {
+        response.setStatusCode(upstream.getStatusCode());
+        upstream.getHeaders().forEach((name, values) -> {
+            if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase())) {
+                response.getHeaders().put(name, values);
+            }
+        });
+        byte[] body = upstream.getBody();
+        if (body == null || body.length == 0) {
+            return response.setComplete();
+        }
+        response.getHeaders().setContentLength(body.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+    
+    private Counter counter(String name, String routeId) {
+        return Counter.builder(name)
+                .tag("route", routeId)
+                .register(meterRegistry);
+    }
+    
+    public static class Config {
+        private Duration delay = Duration.ofMillis(200);
+        
+        public Duration getDelay() { return delay; }
+        public void setDelay(Duration delay) { this.delay = delay; }
+    }
+    
+    /**
+     * Holds the first attempt's status and headers until it claims the response; if the
+     * hedge got there first, its output is never written and it waits to be cancelled
+     */
+    private static final class HedgedResponse extends ServerHttpResponseDecorator {
+        private final AtomicBoolean claimed;
+        private final HttpHeaders headers = new HttpHeaders();
+        private HttpStatusCode statusCode;
+        
+        HedgedResponse(ServerHttpResponse delegate, AtomicBoolean claimed) {
+            super(delegate);
+            this.claimed = claimed;
+        }
+        
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+        
+        @Override
+        public boolean setStatusCode(HttpStatusCode status) {
+            this.statusCode = status;
+            return true;
+        }
+        
+        @Override
+        public HttpStatusCode getStatusCode() {
+            return statusCode != null ? statusCode : getDelegate().getStatusCode();
+        }
+        
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            return claim() ? getDelegate().writeWith(body) : Mono.never();
+        }
+        
+        @Override
+        public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+            return claim() ? getDelegate().writeAndFlushWith(body) : Mono.never();
+        }
+        
+        @Override
+        public Mono<Void> setComplete() {
+            return claim() ? getDelegate().setComplete() : Mono.never();
+        }
+        
+        private boolean claim() {
+            if (!claimed.compareAndSet(false, true)) {
+                return false;
+            }
+            if (statusCode != null) {
+                getDelegate().setStatusCode(statusCode);
+            }
+            getDelegate().getHeaders().putAll(headers);
+            return true;
+        }
+    }
+}
+
@@ -0,0 +1,192 @@
+package com.smartbus2plus.gateway.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sheds low-priority traffic first when downstream latency rises.
+ * Routes carry a "priority" metadata entry (HIGH, NORMAL or LOW, default NORMAL). Latency
+ * is averaged per priority, and the HIGH and NORMAL averages decide which levels are served:
+ * above the low threshold LOW routes get a 503, above the normal threshold NORMAL ones do
+ * too, and HIGH routes such as bookings and payments are never shed. LOW routes are slow
+ * by nature, so their own latency never sheds anyone else.
+ * While a level is shed, one probe request per interval still goes through so its average
+ * can recover, and an average with no recent samples is ignored.
+ */
+@Component
+public class LoadSheddingFilter implements GlobalFilter, Ordered {
+    
+    public static final String PRIORITY_METADATA = "priority";
+    
+    public enum Priority {
+        HIGH, NORMAL, LOW
+    }
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${gateway.shedding.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${gateway.shedding.low-threshold-ms:800}")
+    private double lowThresholdMs;
+    
+    @Value("${gateway.shedding.normal-threshold-ms:2000}")
+    private double normalThresholdMs;
+    
+    @Value("${gateway.shedding.alpha:0.05}") // EWMA smoothing factor
+    private double alpha;
+    
+    @Value("${gateway.shedding.retry-after-seconds:5}")
+    private int retryAfterSeconds;
+    
+    @Value("${gateway.shedding.probe-interval-ms:1000}")
+    private long probeIntervalMs;
+    
+    @Value("${gateway.shedding.stale-after-ms:30000}")
+    private long staleAfterMs;
+    
+    private final Map<Priority, LatencyAverage> latency = new EnumMap<>(Priority.class);
+    
+    // Earliest time, in System.nanoTime(), at which a shed level lets its next probe through
+    private final Map<Priority, AtomicLong> nextProbe = new EnumMap<>(Priority.class);
+    
+    private final Map<Priority, Counter> shedCounters = new EnumMap<>(Priority.class);
+    
+    @PostConstruct
+    public void init() {
+        for (Priority priority : Priority.values()) {
+            LatencyAverage average = new LatencyAverage();
+            latency.put(priority, average);
+            nextProbe.put(priority, new AtomicLong(System.nanoTime()));
+            Gauge.builder("gateway.downstream.latency.ewma", average, a -> a.valueMs(System.nanoTime(), staleAfterMs))
+                    .description("Smoothed downstream latency used for load shedding")
+                    .tag("priority", priority.name())
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+        }
+        shedCounters.put(Priority.LOW, Counter.builder("gateway.requests.shed").tag("priority", "LOW").register(meterRegistry));
+        shedCounters.put(Priority.NORMAL, Counter.builder("gateway.requests.shed").tag("priority", "NORMAL").register(meterRegistry));
+    }
+    
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        // A WebSocket completes only when the connection closes, so it is no latency sample
+        boolean webSocket = "websocket".equalsIgnoreCase(exchange.getRequest().getHeaders().getUpgrade());
+        if (!enabled || route == null || webSocket) {
+            return chain.filter(exchange);
+        }
+        
+        Priority priority = priority(route);
+        long start = System.nanoTime();
+        if (shouldShed(priority, start) && !probe(priority, start)) {
+            shedCounters.get(priority).increment();
+            return shed(exchange);
+        }
+        
+        LatencyAverage average = latency.get(priority);
+        return chain.filter(exchange).doFinally(signal -> {
+            // Cache hits and rate-limited requests never reached a downstream service
+            if (!"HIT".equals(exchange.getResponse().getHeaders().getFirst("X-Cache"))
+                    && exchange.getResponse().getStatusCode() != HttpStatus.TOO_MANY_REQUESTS) {
+                long end = System.nanoTime();
+                average.record((end - start) / 1_000_000.0, end, alpha, staleAfterMs);
+            }
+        });
+    }
+    
+    @Override
+    public int getOrder() {
+        // Cheap local check, ahead of the Redis round-trip for rate limiting
+        return Ordered.HIGHEST_PRECEDENCE + 15;
+    }
+    
+    /**
+     * Smoothed latency of the HIGH and NORMAL routes; LOW routes do not contribute
+     */
+    public double getLatencyMs() {
+        return latencyMs(System.nanoTime());
+    }
+    
+    private boolean shouldShed(Priority priority, long now) {
+        if (priority == Priority.HIGH) {
+            return false;
+        }
+        return latencyMs(now) > (priority == Priority.LOW ? lowThresholdMs : normalThresholdMs);
+    }
+    
+    private double latencyMs(long now) {
+        return Math.max(latency.get(Priority.HIGH).valueMs(now, staleAfterMs),
+                latency.get(Priority.NORMAL).valueMs(now, staleAfterMs));
+    }
+    
+    private boolean probe(Priority priority, long now) {
+        AtomicLong next = nextProbe.get(priority);
+        long due = next.get();
+        return now - due >= 0 && next.compareAndSet(due, now + TimeUnit.MILLISECONDS.toNanos(probeIntervalMs));
+    }
+    
+    private static Priority priority(Route route) {
+        Object value = route.getMetadata().get(PRIORITY_METADATA);
+        return value != null ? Priority.valueOf(value.toString()) : Priority.NORMAL;
+    }
+    
+    private Mono<Void> shed(ServerWebExchange exchange) {
+        exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        exchange.getResponse().getHeaders().set("Retry-After", String.valueOf(retryAfterSeconds));
+        return exchange.getResponse().setComplete();
+    }
+    
+    /**
+     * Exponentially weighted average in milliseconds, stored as double bits, with the time of its last sample
+     */
+    private static final class LatencyAverage {
+        private final AtomicLong bits = new AtomicLong(Double.doubleToLongBits(0));
+        private volatile long lastSample = System.nanoTime();
+        
+        void record(double sampleMs, long now, double alpha, long staleAfterMs) {
+            boolean stale = isStale(now, staleAfterMs);
+            long current;
+            long next;
+            do {
+                current = bits.get();
+                double average = Double.longBitsToDouble(current);
+                // After an idle spell, start again from the new sample instead of the old average
+                next = Double.doubleToLongBits(stale ? sampleMs : average + alpha * (sampleMs - average));
+            } while (!bits.compareAndSet(current, next));
+            lastSample = now;
+        }
+        
+        double valueMs(long now, long staleAfterMs) {
+            // Without recent samples the average says nothing about current load
+            if (isStale(now, staleAfterMs)) {
+                return 0;
+            }
+            return Double.longBitsToDouble(bits.get());
+        }
+        
+        private boolean isStale(long now, long staleAfterMs) {
+            return now - lastSample > TimeUnit.MILLISECONDS.toNanos(staleAfterMs);
+        }
+    }
+}
+
@@ -0,0 +1,114 @@
+package com.smartbus2plus.gateway.filter;
+
+import com.smartbus2plus.gateway.config.RateLimitProperties;
+import com.smartbus2plus.gateway.security.JwtAuthenticationFilter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.route.Route;
+import org.springframework.cloud.gateway.support.ServerWebExchangeUtils;
+import org.springframework.core.Ordered;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Distributed token-bucket rate limiting shared by every gateway node through Redis.
+ * Each caller gets a bucket per route: identified by API key when a configured one is
+ * presented, otherwise by the authenticated user, otherwise by client address.
+ * If Redis is unavailable requests are let through rather than rejected.
+ */
+@Component
+public class RateLimitFilter implements GlobalFilter, Ordered {
+    
+    public static final String API_KEY_HEADER = "X-API-Key";
+    
+    private static final String BUCKET_PREFIX = "gateway:rate:";
+    
+    // Refill from the elapsed time on Redis' own clock, then take one token if available
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static final RedisScript<List<Long>> TOKEN_BUCKET_SCRIPT = new DefaultRedisScript(
+            "local rate = tonumber(ARGV[1]) " +
+            "local capacity = tonumber(ARGV[2]) " +
+            "local time = redis.call('TIME') " +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000) " +
+            "local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'ts') " +
+            "local tokens = tonumber(bucket[1]) or capacity " +
+            "local ts = tonumber(bucket[2]) or now " +
+            "tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate / 1000) " +
+            "local allowed = 0 " +
+            "if tokens >= 1 then tokens = tokens - 1 allowed = 1 end " +
+            "redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', now) " +
+            "redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / rate * 1000) + 1000) " +
+            "return {allowed, math.floor(tokens)}", List.class);
+    
+    @Autowired
+    private RateLimitProperties properties;
+    
+    @Autowired
+    private ReactiveStringRedisTemplate redisTemplate;
+    
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        Route route = exchange.getAttribute(ServerWebExchangeUtils.GATEWAY_ROUTE_ATTR);
+        if (!properties.isEnabled() || route == null) {
+            return chain.filter(exchange);
+        }
+        
+        String apiKey = exchange.getRequest().getHeaders().getFirst(API_KEY_HEADER);
+        if (apiKey != null && !properties.getApiKeys().containsKey(apiKey)) {
+            // Unknown keys would otherwise let a client mint fresh buckets at will
+            apiKey = null;
+        }
+        RateLimitProperties.Limit limit = properties.limitFor(route.getId(), apiKey);
+        String bucket = BUCKET_PREFIX + route.getId() + ":" + caller(exchange, apiKey);
+        
+        return redisTemplate.execute(TOKEN_BUCKET_SCRIPT, Collections.singletonList(bucket),
+                        Arrays.asList(String.valueOf(limit.getReplenishRate()), String.valueOf(limit.getBurstCapacity())))
+                .next()
+                .map(result -> result.get(0) == 1L ? result.get(1) : -1L)
+                .onErrorReturn(Long.MAX_VALUE)
+                .defaultIfEmpty(Long.MAX_VALUE)
+                .flatMap(remaining -> {
+                    if (remaining < 0) {
+                        exchange.getResponse().setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                        exchange.getResponse().getHeaders().set("X-RateLimit-Remaining", "0");
+                        exchange.getResponse().getHeaders().set("Retry-After",
+                                String.valueOf((long) Math.ceil(1 / limit.getReplenishRate())));
+                        return exchange.getResponse().setComplete();
+                    }
+                    if (remaining != Long.MAX_VALUE) {
+                        exchange.getResponse().getHeaders().set("X-RateLimit-Remaining", String.valueOf(remaining));
+                    }
+                    return chain.filter(exchange);
+                });
+    }
+    
+    @Override
+    public int getOrder() {
+        // After authentication so the trusted user header is in place
+        return Ordered.HIGHEST_PRECEDENCE + 20;
+    }
+    
+    private static String caller(ServerWebExchange exchange, String apiKey) {
+        if (apiKey != null) {
+            return "key:" + apiKey;
+        }
+        String userId = exchange.getRequest().getHeaders().getFirst(JwtAuthenticationFilter.USER_ID_HEADER);
+        if (userId != null) {
+            return "user:" + userId;
+        }
+        InetSocketAddress address = exchange.getRequest().getRemoteAddress();
+        return "ip:" + (address != null ? address.getAddress().getHostAddress() : "unknown");
+    }
+}
+
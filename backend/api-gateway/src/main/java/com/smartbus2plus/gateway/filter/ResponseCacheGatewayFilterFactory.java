@@ -0,0 +1,270 @@
+package com.smartbus2plus.gateway.filter;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.OrderedGatewayFilter;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Caches successful GET responses at the gateway for a per-route time to live.
+ * Entries live in a Caffeine cache bounded by total body size. Concurrent misses for the
+ * same request are coalesced, so only one of them reaches the downstream service.
+ * Cache-Control is honoured both ways: clients can ask for a fresh copy, and services
+ * can shorten the TTL with max-age or opt out with no-store, no-cache or private.
+ */
+@Component
+public class ResponseCacheGatewayFilterFactory extends AbstractGatewayFilterFactory<ResponseCacheGatewayFilterFactory.Config> {
+    
+    private static final Pattern MAX_AGE = Pattern.compile("(?:s-maxage|max-age)=(\\d+)");
+    
+    // Headers that describe the upstream's representation; per-request ones such as rate
+    // limit counters and CORS headers are added by each caller's own filters
+    private static final List<String> STORED_HEADERS = List.of(
+            HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_ENCODING, HttpHeaders.CONTENT_LANGUAGE,
+            HttpHeaders.ETAG, HttpHeaders.LAST_MODIFIED, HttpHeaders.CACHE_CONTROL,
+            HttpHeaders.EXPIRES, HttpHeaders.VARY);
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${gateway.cache.max-bytes:67108864}")
+    private long maxBytes;
+    
+    @Value("${gateway.cache.max-entry-bytes:1048576}")
+    private long maxEntryBytes;
+    
+    @Value("${gateway.cache.coalesce-timeout-ms:5000}")
+    private long coalesceTimeout;
+    
+    private Cache<String, CachedResponse> cache;
+    
+    private final Map<String, Sinks.One<CachedResponse>> inFlight = new ConcurrentHashMap<>();
+    
+    public ResponseCacheGatewayFilterFactory() {
+        super(Config.class);
+    }
+    
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, CachedResponse response) -> key.length() + response.body.length)
+                .expireAfter(new Expiry<String, CachedResponse>() {
+                    @Override
+                    public long expireAfterCreate(String key, CachedResponse response, long currentTime) {
+                        return response.ttlNanos;
+                    }
+                    
+                    @Override
+                    public long expireAfterUpdate(String key, CachedResponse response, long currentTime, long currentDuration) {
+                        return response.ttlNanos;
+                    }
+                    
+                    @Override
+                    public long expireAfterRead(String key, CachedResponse response, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "gateway.response");
+    }
+    
+    @Override
+    public GatewayFilter apply(Config config) {
+        GatewayFilter filter = (exchange, chain) -> {
+            if (exchange.getRequest().getMethod() != HttpMethod.GET) {
+                return chain.filter(exchange);
+            }
+            String requestCacheControl = exchange.getRequest().getHeaders().getCacheControl();
+            if (requestCacheControl != null && requestCacheControl.contains("no-store")) {
+                return chain.filter(exchange);
+            }
+            
+            String key = key(exchange);
+            boolean revalidate = requestCacheControl != null
+                    && (requestCacheControl.contains("no-cache") || requestCacheControl.contains("max-age=0"));
+            if (!revalidate) {
+                CachedResponse cached = cache.getIfPresent(key);
+                if (cached != null) {
+                    return write(exchange, cached, "HIT");
+                }
+            }
+            
+            Sinks.One<CachedResponse> sink = Sinks.one();
+            Sinks.One<CachedResponse> leader = inFlight.putIfAbsent(key, sink);
+            if (leader != null && !revalidate) {
+                // Another request is already fetching this; share its response
+                return leader.asMono()
+                        .timeout(Duration.ofMillis(coalesceTimeout))
+                        .map(Optional::of)
+                        .onErrorResume(e -> Mono.empty())
+                        .defaultIfEmpty(Optional.empty())
+                        .flatMap(shared -> shared.isPresent()
+                                ? write(exchange, shared.get(), "COALESCED")
+                                : chain.filter(exchange));
+            }
+            
+            long ttlNanos = config.getTimeToLive().toNanos();
+            ServerHttpResponse response = new CachingResponse(exchange.getResponse(), key, ttlNanos, leader == null ? sink : null);
+            return chain.filter(exchange.mutate().response(response).build())
+                    .doFinally(signal -> {
+                        if (leader == null) {
+                            inFlight.remove(key, sink);
+                            sink.tryEmitEmpty();
+                        }
+                    });
+        };
+        // Must wrap the response before NettyWriteResponseFilter writes the downstream body into it,
+        // and outside the hedge filter so whichever attempt wins is cached
+        return new OrderedGatewayFilter(filter, HedgedRequestGatewayFilterFactory.HEDGE_FILTER_ORDER - 1);
+    }
+    
+    private static String key(ServerWebExchange exchange) {
+        String query = exchange.getRequest().getURI().getRawQuery();
+        String accept = exchange.getRequest().getHeaders().getFirst(HttpHeaders.ACCEPT);
+        return exchange.getRequest().getURI().getRawPath() + (query != null ? "?" + query : "")
+                + "|" + (accept != null ? accept : "");
+    }
+    
+    private static Mono<Void> write(ServerWebExchange exchange, CachedResponse cached, String result) {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.OK);
+        response.getHeaders().putAll(cached.headers);
+        response.getHeaders().set(HttpHeaders.AGE, String.valueOf((System.currentTimeMillis() - cached.storedAt) / 1000));
+        response.getHeaders().set("X-Cache", result);
+        return response.writeWith(Mono.fromSupplier(() -> response.bufferFactory().wrap(cached.body)));
+    }
+    
+    /**
+     * TTL for a downstream response, or zero if it must not be cached
+     */
+    private long cacheableFor(HttpHeaders headers, long routeTtlNanos) {
+        if (headers.containsKey(HttpHeaders.SET_COOKIE) || headers.getContentLength() > maxEntryBytes) {
+            return 0;
+        }
+        String cacheControl = headers.getCacheControl();
+        if (cacheControl == null) {
+            return routeTtlNanos;
+        }
+        if (cacheControl.contains("no-store") || cacheControl.contains("no-cache") || cacheControl.contains("private")) {
+            return 0;
+        }
+        Matcher maxAge = MAX_AGE.matcher(cacheControl);
+        if (maxAge.find()) {
+            return Math.min(routeTtlNanos, Duration.ofSeconds(Long.parseLong(maxAge.group(1))).toNanos());
+        }
+        return routeTtlNanos;
+    }
+    
+    private final class CachingResponse extends ServerHttpResponseDecorator {
+        private final String key;
+        private final long routeTtlNanos;
+        private final Sinks.One<CachedResponse> sink;
+        
+        CachingResponse(ServerHttpResponse delegate, String key, long routeTtlNanos, Sinks.One<CachedResponse> sink) {
+            super(delegate);
+            this.key = key;
+            this.routeTtlNanos = routeTtlNanos;
+            this.sink = sink;
+        }
+        
+        @Override
+        public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+            long ttlNanos = HttpStatus.OK.equals(getStatusCode()) ? cacheableFor(getHeaders(), routeTtlNanos) : 0;
+            if (ttlNanos <= 0) {
+                getHeaders().set("X-Cache", "BYPASS");
+                return super.writeWith(body);
+            }
+            
+            // Chunked bodies report no length up front: buffer only up to max-entry-bytes. The first
+            // group is the whole body if it fits; otherwise it is cut at the cap and everything is streamed
+            AtomicLong size = new AtomicLong();
+            return Flux.from(body)
+                    .bufferUntil(buffer -> size.addAndGet(buffer.readableByteCount()) > maxEntryBytes)
+                    .switchOnFirst((first, groups) -> {
+                        if (!first.hasValue() || size.get() > maxEntryBytes) {
+                            getHeaders().set("X-Cache", "BYPASS");
+                            return super.writeWith(groups.flatMapIterable(Function.identity()));
+                        }
+                        getHeaders().set("X-Cache", "MISS");
+                        return store(first.get(), ttlNanos);
+                    })
+                    .then();
+        }
+        
+        private Mono<Void> store(List<DataBuffer> buffers, long ttlNanos) {
+            DataBuffer joined = bufferFactory().join(buffers);
+            byte[] bytes = new byte[joined.readableByteCount()];
+            joined.read(bytes);
+            DataBufferUtils.release(joined);
+            
+            HttpHeaders headers = new HttpHeaders();
+            for (String name : STORED_HEADERS) {
+                List<String> values = getHeaders().get(name);
+                if (values != null) {
+                    headers.put(name, values);
+                }
+            }
+            headers.setContentLength(bytes.length);
+            CachedResponse cached = new CachedResponse(headers, bytes, ttlNanos, System.currentTimeMillis());
+            cache.put(key, cached);
+            if (sink != null) {
+                sink.tryEmitValue(cached);
+            }
+            return super.writeWith(Mono.just(bufferFactory().wrap(bytes)));
+        }
+    }
+    
+    private static final class CachedResponse {
+        private final HttpHeaders headers;
+        private final byte[] body;
+        private final long ttlNanos;
+        private final long storedAt;
+        
+        CachedResponse(HttpHeaders headers, byte[] body, long ttlNanos, long storedAt) {
+            this.headers = headers;
+            this.body = body;
+            this.ttlNanos = ttlNanos;
+            this.storedAt = storedAt;
+        }
+    }
+    
+    public static class Config {
+        private Duration timeToLive = Duration.ofSeconds(60);
+        
+        public Duration getTimeToLive() { return timeToLive; }
+        public void setTimeToLive(Duration timeToLive) { this.timeToLive = timeToLive; }
+    }
+}
+
@@ -0,0 +1,138 @@
+package com.smartbus2plus.gateway.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Verifies bearer tokens once at the edge and forwards the caller's identity to the
+ * backend services as trusted headers. Identity headers sent by clients are always
+ * stripped, so services can rely on them without verifying tokens themselves.
+ */
+@Component
+public class JwtAuthenticationFilter implements GlobalFilter, Ordered {
+    
+    public static final String USER_ID_HEADER = "X-User-Id";
+    public static final String USER_NAME_HEADER = "X-User-Name";
+    public static final String USER_ROLE_HEADER = "X-User-Role";
+    
+    // Must match the keys written by auth-service's TokenRevocationService
+    private static final String REVOKED_PREFIX = "auth:revoked:";
+    private static final String VERSION_PREFIX = "auth:token-version:";
+    
+    @Autowired
+    private TokenVerifier tokenVerifier;
+    
+    @Autowired
+    private ReactiveStringRedisTemplate redisTemplate;
+    
+    @Value("${gateway.auth.public-paths:/api/auth/login,/api/auth/register,/api/auth/available,/api/auth/refresh,/api/auth/jwks,/ws/**,/actuator/**}")
+    private List<String> publicPaths;
+    
+    // Public for reads only; writes such as seat health updates still need a token
+    @Value("${gateway.auth.public-read-paths:/api/inventory/**}")
+    private List<String> publicReadPaths;
+    
+    // Service-to-service endpoints, called directly over the load balancer; never routed from outside
+    @Value("${gateway.auth.internal-paths:/api/booking/missed}")
+    private List<String> internalPaths;
+    
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+    
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+        if (matchesAny(internalPaths, exchange.getRequest().getPath().value())) {
+            return reject(exchange, HttpStatus.FORBIDDEN);
+        }
+        ServerHttpRequest request = exchange.getRequest().mutate()
+                .headers(headers -> {
+                    headers.remove(USER_ID_HEADER);
+                    headers.remove(USER_NAME_HEADER);
+                    headers.remove(USER_ROLE_HEADER);
+                })
+                .build();
+        boolean publicPath = isPublic(request.getMethod(), request.getPath().value());
+        
+        String authorizationHeader = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        if (authorizationHeader == null || !authorizationHeader.startsWith("Bearer ")) {
+            return publicPath ? chain.filter(exchange.mutate().request(request).build()) : reject(exchange, HttpStatus.UNAUTHORIZED);
+        }
+        
+        return tokenVerifier.verify(authorizationHeader.substring(7))
+                .flatMap(token -> isActive(token).map(active -> active ? Optional.of(token) : Optional.<TokenVerifier.VerifiedToken>empty()))
+                .onErrorReturn(Optional.empty())
+                .flatMap(verified -> {
+                    if (verified.isEmpty()) {
+                        // A stale token must not block public endpoints such as login
+                        return publicPath ? chain.filter(exchange.mutate().request(request).build()) : reject(exchange, HttpStatus.UNAUTHORIZED);
+                    }
+                    TokenVerifier.VerifiedToken token = verified.get();
+                    ServerHttpRequest authenticated = request.mutate()
+                            .header(USER_ID_HEADER, String.valueOf(token.getUserId()))
+                            .header(USER_NAME_HEADER, token.getUsername())
+                            .header(USER_ROLE_HEADER, token.getRole())
+                            .build();
+                    return chain.filter(exchange.mutate().request(authenticated).build());
+                });
+    }
+    
+    @Override
+    public int getOrder() {
+        // Before routing so rejected requests never reach a backend
+        return Ordered.HIGHEST_PRECEDENCE + 10;
+    }
+    
+    private boolean isPublic(HttpMethod method, String path) {
+        if (matchesAny(publicPaths, path)) {
+            return true;
+        }
+        return (method == HttpMethod.GET || method == HttpMethod.HEAD) && matchesAny(publicReadPaths, path);
+    }
+    
+    private boolean matchesAny(List<String> patterns, String path) {
+        for (String pattern : patterns) {
+            if (pathMatcher.match(pattern, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private Mono<Boolean> isActive(TokenVerifier.VerifiedToken token) {
+        if (token.getUserId() == null || token.getTokenVersion() == null || token.getTokenId() == null) {
+            return Mono.just(false);
+        }
+        return redisTemplate.opsForValue()
+                .multiGet(Arrays.asList(REVOKED_PREFIX + token.getTokenId(), VERSION_PREFIX + token.getUserId()))
+                .map(values -> {
+                    if (values.get(0) != null) {
+                        return false;
+                    }
+                    long currentVersion = values.get(1) != null ? Long.parseLong(values.get(1)) : 0;
+                    return token.getTokenVersion() >= currentVersion;
+                })
+                .defaultIfEmpty(false)
+                .onErrorReturn(false);
+    }
+    
+    private Mono<Void> reject(ServerWebExchange exchange, HttpStatus status) {
+        exchange.getResponse().setStatusCode(status);
+        return exchange.getResponse().setComplete();
+    }
+}
+
@@ -0,0 +1,224 @@
+package com.smartbus2plus.gateway.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.AlgorithmParameters;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Verifies tokens issued by auth-service against the public keys it publishes as a JWKS.
+ * Keys are cached in memory by key ID and refetched only when a token names an unknown one.
+ * Verified identities are remembered in a bounded LRU keyed by a SHA-256 of the token
+ * until they expire, so repeat requests cost one hash instead of a signature check.
+ */
+@Component
+public class TokenVerifier {
+    
+    @Autowired
+    private WebClient.Builder webClientBuilder;
+    
+    @Value("${jwt.jwks-uri:http://auth-service/api/auth/jwks}")
+    private String jwksUri;
+    
+    @Value("${jwt.jwks-min-refresh-interval-ms:10000}") // bounds refetches caused by bogus key IDs
+    private long minRefreshInterval;
+    
+    @Value("${jwt.cache.max-entries:50000}")
+    private int cacheMaxEntries;
+    
+    private final Map<String, PublicKey> publicKeys = new ConcurrentHashMap<>();
+    
+    private JwtParser parser;
+    
+    private Map<ByteBuffer, VerifiedToken> verified;
+    
+    private Mono<Void> refresh;
+    
+    private long lastRefresh;
+    
+    @PostConstruct
+    public void init() {
+        parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(new SigningKeyResolverAdapter() {
+                    @Override
+                    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+                        PublicKey key = header.getKeyId() != null ? publicKeys.get(header.getKeyId()) : null;
+                        if (key == null) {
+                            throw new UnknownKeyException(header.getKeyId());
+                        }
+                        return key;
+                    }
+                })
+                .build();
+        verified = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, VerifiedToken> eldest) {
+                return size() > cacheMaxEntries;
+            }
+        };
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void prefetchKeys() {
+        refreshKeys().subscribe();
+    }
+    
+    /**
+     * Verify the token and return the identity it carries.
+     * Errors with a JwtException if the signature is invalid or the token has expired.
+     */
+    public Mono<VerifiedToken> verify(String token) {
+        ByteBuffer key = digest(token);
+        long now = System.currentTimeMillis();
+        synchronized (verified) {
+            VerifiedToken cached = verified.get(key);
+            if (cached != null) {
+                if (cached.getExpiresAt() > now) {
+                    return Mono.just(cached);
+                }
+                verified.remove(key);
+            }
+        }
+        
+        try {
+            return Mono.just(parse(key, token));
+        } catch (UnknownKeyException e) {
+            // Likely a freshly rotated key; fetch the key set once and try again
+            return refreshKeys().then(Mono.fromCallable(() -> parse(key, token)));
+        } catch (Exception e) {
+            return Mono.error(e);
+        }
+    }
+    
+    private VerifiedToken parse(ByteBuffer key, String token) {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        Date expiresAt = claims.getExpiration();
+        VerifiedToken result = new VerifiedToken(
+            claims.getId(),
+            claims.get("uid", Long.class),
+            claims.getSubject(),
+            claims.get("role", String.class),
+            claims.get("ver", Long.class),
+            expiresAt != null ? expiresAt.getTime() : Long.MAX_VALUE
+        );
+        if (expiresAt != null) {
+            synchronized (verified) {
+                verified.put(key, result);
+            }
+        }
+        return result;
+    }
+    
+    private synchronized Mono<Void> refreshKeys() {
+        long now = System.currentTimeMillis();
+        if (refresh != null && now - lastRefresh < minRefreshInterval) {
+            return refresh;
+        }
+        lastRefresh = now;
+        refresh = webClientBuilder.build()
+                .get()
+                .uri(jwksUri)
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Map<String, List<Map<String, Object>>>>() {})
+                .doOnNext(jwks -> {
+                    for (Map<String, Object> jwk : jwks.getOrDefault("keys", List.of())) {
+                        if ("EC".equals(jwk.get("kty")) && "P-256".equals(jwk.get("crv"))) {
+                            publicKeys.put((String) jwk.get("kid"), toPublicKey(jwk));
+                        }
+                    }
+                })
+                .then()
+                .onErrorResume(e -> Mono.empty())
+                .cache();
+        return refresh;
+    }
+    
+    private static PublicKey toPublicKey(Map<String, Object> jwk) {
+        try {
+            AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+            parameters.init(new ECGenParameterSpec("secp256r1"));
+            ECPoint point = new ECPoint(coordinate(jwk.get("x")), coordinate(jwk.get("y")));
+            return KeyFactory.getInstance("EC")
+                    .generatePublic(new ECPublicKeySpec(point, parameters.getParameterSpec(ECParameterSpec.class)));
+        } catch (Exception e) {
+            throw new RuntimeException("Invalid signing key " + jwk.get("kid"), e);
+        }
+    }
+    
+    private static BigInteger coordinate(Object encoded) {
+        return new BigInteger(1, Base64.getUrlDecoder().decode((String) encoded));
+    }
+    
+    private static ByteBuffer digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return ByteBuffer.wrap(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    private static final class UnknownKeyException extends JwtException {
+        UnknownKeyException(String keyId) {
+            super("Unknown signing key: " + keyId);
+        }
+    }
+    
+    public static final class VerifiedToken {
+        private final String tokenId;
+        private final Long userId;
+        private final String username;
+        private final String role;
+        private final Long tokenVersion;
+        private final long expiresAt;
+        
+        VerifiedToken(String tokenId, Long userId, String username, String role, Long tokenVersion, long expiresAt) {
+            this.tokenId = tokenId;
+            this.userId = userId;
+            this.username = username;
+            this.role = role;
+            this.tokenVersion = tokenVersion;
+            this.expiresAt = expiresAt;
+        }
+        
+        // Getters
+        public String getTokenId() { return tokenId; }
+        public Long getUserId() { return userId; }
+        public String getUsername() { return username; }
+        public String getRole() { return role; }
+        public Long getTokenVersion() { return tokenVersion; }
+        public long getExpiresAt() { return expiresAt; }
+    }
+}
+
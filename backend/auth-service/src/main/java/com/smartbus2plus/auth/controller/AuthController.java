@@ -4,11 +4,19 @@ import com.smartbus2plus.auth.dto.AuthDto;
 import com.smartbus2plus.auth.service.AuthService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import com.smartbus2plus.auth.security.SigningKeyManager;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Authentication controller for SmartBus2+
  */
@@ -20,17 +28,35 @@ public class AuthController {
     @Autowired
     private AuthService authService;
     
+    @Autowired
+    private SigningKeyManager signingKeyManager;
+    
     @PostMapping("/login")
     @Operation(summary = "User login", description = "Authenticate user and return JWT token")
-    public ResponseEntity<AuthDto.AuthResponse> login(@Valid @RequestBody AuthDto.LoginRequest loginRequest) {
-        AuthDto.AuthResponse response = authService.login(loginRequest);
-        return ResponseEntity.ok(response);
+    public CompletableFuture<ResponseEntity<AuthDto.AuthResponse>> login(@Valid @RequestBody AuthDto.LoginRequest loginRequest,
+                                                                         HttpServletRequest request) {
+        return authService.login(loginRequest, clientIp(request)).thenApply(ResponseEntity::ok);
     }
     
     @PostMapping("/register")
     @Operation(summary = "User registration", description = "Register a new user account")
-    public ResponseEntity<AuthDto.AuthResponse> register(@Valid @RequestBody AuthDto.RegisterRequest registerRequest) {
-        AuthDto.AuthResponse response = authService.register(registerRequest);
+    public CompletableFuture<ResponseEntity<AuthDto.AuthResponse>> register(@Valid @RequestBody AuthDto.RegisterRequest registerRequest,
+                                                                            HttpServletRequest request) {
+        return authService.register(registerRequest, clientIp(request)).thenApply(ResponseEntity::ok);
+    }
+    
+    @GetMapping("/available")
+    @Operation(summary = "Check availability", description = "Check whether a username and/or email can still be registered")
+    public ResponseEntity<AuthDto.Availability> checkAvailability(@RequestParam(required = false) String username,
+                                                                  @RequestParam(required = false) String email) {
+        AuthDto.Availability availability = authService.checkAvailability(username, email);
+        return ResponseEntity.ok(availability);
+    }
+    
+    @PostMapping("/refresh")
+    @Operation(summary = "Refresh token", description = "Exchange a refresh token for a new access token and refresh token")
+    public ResponseEntity<AuthDto.AuthResponse> refresh(@Valid @RequestBody AuthDto.RefreshRequest refreshRequest) {
+        AuthDto.AuthResponse response = authService.refresh(refreshRequest);
         return ResponseEntity.ok(response);
     }
     
@@ -42,6 +68,23 @@ public class AuthController {
         return ResponseEntity.ok(isValid);
     }
     
+    @PostMapping("/logout")
+    @Operation(summary = "Logout", description = "Revoke the JWT and refresh tokens, or all of the user's tokens")
+    public ResponseEntity<Void> logout(@RequestHeader("Authorization") String token,
+                                       @RequestBody(required = false) AuthDto.RefreshRequest refreshRequest,
+                                       @RequestParam(defaultValue = "false") boolean allSessions) {
+        authService.logout(token.substring(7), refreshRequest != null ? refreshRequest.getRefreshToken() : null, allSessions);
+        return ResponseEntity.noContent().build();
+    }
+    
+    @GetMapping("/jwks")
+    @Operation(summary = "Token signing keys", description = "Public keys for verifying JWT tokens, as a JSON Web Key Set")
+    public ResponseEntity<Map<String, List<Map<String, Object>>>> getJwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(5, TimeUnit.MINUTES))
+                .body(Map.of("keys", signingKeyManager.getJwks()));
+    }
+    
     @GetMapping("/user/{username}")
     @Operation(summary = "Get user by username", description = "Retrieve user information by username")
     public ResponseEntity<?> getUserByUsername(@PathVariable String username) {
@@ -49,5 +92,14 @@ public class AuthController {
                 .map(user -> ResponseEntity.ok(user))
                 .orElse(ResponseEntity.notFound().build());
     }
+    
+    private static String clientIp(HttpServletRequest request) {
+        // The gateway appends the address it saw last; earlier entries are client-supplied
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        if (forwardedFor != null && !forwardedFor.isBlank()) {
+            return forwardedFor.substring(forwardedFor.lastIndexOf(',') + 1).trim();
+        }
+        return request.getRemoteAddr();
+    }
 }
 
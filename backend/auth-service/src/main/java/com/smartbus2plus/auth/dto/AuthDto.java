@@ -30,6 +30,20 @@ public class AuthDto {
         public void setPassword(String password) { this.password = password; }
     }
     
+    public static class RefreshRequest {
+        @NotBlank
+        private String refreshToken;
+        
+        public RefreshRequest() {}
+        
+        public RefreshRequest(String refreshToken) {
+            this.refreshToken = refreshToken;
+        }
+        
+        public String getRefreshToken() { return refreshToken; }
+        public void setRefreshToken(String refreshToken) { this.refreshToken = refreshToken; }
+    }
+    
     public static class RegisterRequest {
         @NotBlank
         @Size(max = 50)
@@ -76,9 +90,28 @@ public class AuthDto {
         public void setPhone(String phone) { this.phone = phone; }
     }
     
+    public static class Availability {
+        private Boolean usernameAvailable;
+        private Boolean emailAvailable;
+        
+        public Availability() {}
+        
+        public Availability(Boolean usernameAvailable, Boolean emailAvailable) {
+            this.usernameAvailable = usernameAvailable;
+            this.emailAvailable = emailAvailable;
+        }
+        
+        public Boolean getUsernameAvailable() { return usernameAvailable; }
+        public void setUsernameAvailable(Boolean usernameAvailable) { this.usernameAvailable = usernameAvailable; }
+        
+        public Boolean getEmailAvailable() { return emailAvailable; }
+        public void setEmailAvailable(Boolean emailAvailable) { this.emailAvailable = emailAvailable; }
+    }
+    
     public static class AuthResponse {
         private String token;
         private String type = "Bearer";
+        private String refreshToken;
         private Long id;
         private String username;
         private String email;
@@ -88,9 +121,10 @@ public class AuthDto {
         
         public AuthResponse() {}
         
-        public AuthResponse(String token, Long id, String username, String email, 
+        public AuthResponse(String token, String refreshToken, Long id, String username, String email, 
                           String firstName, String lastName, String role) {
             this.token = token;
+            this.refreshToken = refreshToken;
             this.id = id;
             this.username = username;
             this.email = email;
@@ -105,6 +139,9 @@ public class AuthDto {
         public String getType() { return type; }
         public void setType(String type) { this.type = type; }
         
+        public String getRefreshToken() { return refreshToken; }
+        public void setRefreshToken(String refreshToken) { this.refreshToken = refreshToken; }
+        
         public Long getId() { return id; }
         public void setId(Long id) { this.id = id; }
         
@@ -0,0 +1,49 @@
+package com.smartbus2plus.auth.security;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Authenticated principal built from signed JWT claims, without a user lookup
+ */
+public class AuthenticatedUser {
+    
+    private final Long id;
+    private final String username;
+    private final String role;
+    
+    public AuthenticatedUser(Long id, String username, String role) {
+        this.id = id;
+        this.username = username;
+        this.role = role;
+    }
+    
+    public static AuthenticatedUser fromClaims(Claims claims) {
+        return new AuthenticatedUser(
+            claims.get("uid", Long.class),
+            claims.getSubject(),
+            claims.get("role", String.class)
+        );
+    }
+    
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role));
+    }
+    
+    // Getters
+    public Long getId() { return id; }
+    
+    public String getUsername() { return username; }
+    
+    public String getRole() { return role; }
+    
+    @Override
+    public String toString() {
+        return username;
+    }
+}
+
@@ -1,6 +1,8 @@
 package com.smartbus2plus.auth.security;
 
+import com.smartbus2plus.auth.service.TokenRevocationService;
 import com.smartbus2plus.auth.util.JwtUtil;
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -8,8 +10,6 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -17,13 +17,15 @@ import org.springframework.web.filter.OncePerRequestFilter;
 import java.io.IOException;
 
 /**
- * JWT Authentication Filter for SmartBus2+
+ * JWT Authentication Filter for SmartBus2+.
+ * The principal is built from the token's signed claims; only the revocation check
+ * goes to Redis, so authenticated requests need no database round-trip.
  */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
     @Autowired
-    private UserDetailsService userDetailsService;
+    private TokenRevocationService tokenRevocationService;
     
     @Autowired
     private JwtUtil jwtUtil;
@@ -34,24 +36,30 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         final String authorizationHeader = request.getHeader("Authorization");
         
-        String username = null;
-        String jwt = null;
+        Claims claims = null;
         
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
-            jwt = authorizationHeader.substring(7);
+            String jwt = authorizationHeader.substring(7);
             try {
-                username = jwtUtil.extractUsername(jwt);
+                // Verifies signature and expiry in a single parse
+                claims = jwtUtil.parseToken(jwt);
             } catch (Exception e) {
                 logger.error("Cannot set user authentication: " + e.getMessage(), e);
             }
         }
         
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(username);
+        if (claims != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+            boolean active = false;
+            try {
+                active = tokenRevocationService.isActive(claims);
+            } catch (Exception e) {
+                logger.error("Cannot check token revocation: " + e.getMessage(), e);
+            }
             
-            if (jwtUtil.validateToken(jwt, userDetails.getUsername())) {
+            if (active) {
+                AuthenticatedUser principal = AuthenticatedUser.fromClaims(claims);
                 UsernamePasswordAuthenticationToken authToken = 
-                    new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                    new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
                 authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                 SecurityContextHolder.getContext().setAuthentication(authToken);
             }
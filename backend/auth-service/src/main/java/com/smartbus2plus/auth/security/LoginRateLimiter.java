@@ -0,0 +1,77 @@
+package com.smartbus2plus.auth.security;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Fixed-window login attempt limits per client IP and per username, shared through Redis.
+ * Checked before any password hashing so credential stuffing is turned away cheaply.
+ */
+@Component
+public class LoginRateLimiter {
+    
+    private static final String IP_PREFIX = "auth:login-rate:ip:";
+    private static final String USER_PREFIX = "auth:login-rate:user:";
+    
+    // Count the attempt and start the window on the first one
+    private static final RedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<>(
+            "local count = redis.call('INCR', KEYS[1]) " +
+            "if count == 1 then redis.call('PEXPIRE', KEYS[1], ARGV[1]) end return count", Long.class);
+    
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+    
+    @Value("${auth.login.rate-limit.per-ip:30}")
+    private long perIp;
+    
+    @Value("${auth.login.rate-limit.per-username:10}")
+    private long perUsername;
+    
+    @Value("${auth.login.rate-limit.window-ms:60000}")
+    private long window;
+    
+    /**
+     * Record a login attempt and reject it if either limit is exceeded for this window
+     */
+    public void check(String clientIp, String username) {
+        if (increment(IP_PREFIX + clientIp) > perIp) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many login attempts from this address");
+        }
+        if (username != null && increment(USER_PREFIX + normalize(username)) > perUsername) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many login attempts for this account");
+        }
+    }
+    
+    /**
+     * Record an attempt that is only limited per IP, such as registration
+     */
+    public void check(String clientIp) {
+        check(clientIp, null);
+    }
+    
+    /**
+     * Clear the username's count after a successful login
+     */
+    public void reset(String username) {
+        redisTemplate.delete(USER_PREFIX + normalize(username));
+    }
+    
+    private long increment(String key) {
+        Long count = redisTemplate.execute(INCREMENT_SCRIPT, List.of(key), String.valueOf(window));
+        return count != null ? count : 0;
+    }
+    
+    private static String normalize(String username) {
+        return username.toLowerCase(Locale.ROOT);
+    }
+}
+
@@ -0,0 +1,141 @@
+package com.smartbus2plus.auth.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs BCrypt on a small dedicated pool with a bounded queue, so a login surge queues up
+ * behind a fixed amount of CPU instead of tying up every request thread. When the queue
+ * is full, new work is refused straight away with a 503. Results are handed to the
+ * application task executor, so callers' continuations, which touch the database and
+ * Redis, never hold a hashing thread.
+ */
+@Component
+public class PasswordHasher {
+    
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    @Qualifier("applicationTaskExecutor")
+    private Executor completionExecutor;
+    
+    @Value("${auth.bcrypt.threads:0}") // 0 = one per CPU
+    private int threads;
+    
+    @Value("${auth.bcrypt.queue-capacity:64}")
+    private int queueCapacity;
+    
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    
+    private ThreadPoolExecutor executor;
+    
+    private Timer queueWait;
+    
+    private Timer matchesCpu;
+    
+    private Timer encodeCpu;
+    
+    private String dummyHash;
+    
+    @PostConstruct
+    public void init() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        ExecutorServiceMetrics.monitor(meterRegistry, executor, "auth.password.hashing");
+        
+        queueWait = Timer.builder("auth.password.hash.queue")
+                .description("Time password hashing work waits for a free thread")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        matchesCpu = cpuTimer("matches");
+        encodeCpu = cpuTimer("encode");
+        
+        // Compared against when the username is unknown, so timing does not reveal which users exist
+        dummyHash = passwordEncoder.encode("not-a-real-password");
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+    
+    public CompletableFuture<Boolean> matches(String rawPassword, String encodedPassword) {
+        return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword), matchesCpu);
+    }
+    
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword), encodeCpu);
+    }
+    
+    /**
+     * Whether the hash was made with a lower cost than currently configured
+     */
+    public boolean needsUpgrade(String encodedPassword) {
+        return passwordEncoder.upgradeEncoding(encodedPassword);
+    }
+    
+    public String getDummyHash() {
+        return dummyHash;
+    }
+    
+    private <T> CompletableFuture<T> submit(Supplier<T> work, Timer cpu) {
+        long queuedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                queueWait.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+                long start = threadMXBean.getCurrentThreadCpuTime();
+                try {
+                    return work.get();
+                } finally {
+                    cpu.record(threadMXBean.getCurrentThreadCpuTime() - start, TimeUnit.NANOSECONDS);
+                }
+            }, executor)
+                    // Completes on another thread, so dependent stages run off the hashing pool
+                    .whenCompleteAsync((result, error) -> { }, completionExecutor);
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many logins in progress, try again shortly");
+        }
+    }
+    
+    private Timer cpuTimer(String operation) {
+        return Timer.builder("auth.password.hash.cpu")
+                .description("CPU time spent hashing one password")
+                .tag("operation", operation)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+}
+
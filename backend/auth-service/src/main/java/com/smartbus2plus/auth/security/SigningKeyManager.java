@@ -0,0 +1,184 @@
+package com.smartbus2plus.auth.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.SigningKeyResolverAdapter;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ES256 signing keys with rotating key IDs.
+ * Each instance signs with its own in-memory private key and publishes only the public
+ * half to Redis, where it stays until every token it could have signed has expired.
+ * The JWKS endpoint serves all published keys, so any verifier can check tokens from
+ * any instance without a shared secret.
+ */
+@Component
+public class SigningKeyManager extends SigningKeyResolverAdapter {
+    
+    private static final String JWKS_KEY = "auth:jwks";
+    
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+    
+    @Value("${jwt.expiration:300000}")
+    private long expiration;
+    
+    @Value("${jwt.keys.rotation-interval-ms:86400000}")
+    private long rotationInterval;
+    
+    private volatile SigningKey current;
+    
+    private final Map<String, PublicKey> publicKeys = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    public void init() {
+        rotate();
+    }
+    
+    @Scheduled(fixedRateString = "${jwt.keys.rotation-interval-ms:86400000}",
+               initialDelayString = "${jwt.keys.rotation-interval-ms:86400000}")
+    public void rotate() {
+        KeyPair keyPair = generateKeyPair();
+        String keyId = UUID.randomUUID().toString();
+        
+        // A key signs for one rotation interval, and its last token lives for one expiration after that
+        long retireAt = System.currentTimeMillis() + rotationInterval + expiration;
+        String encoded = Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded());
+        redisTemplate.opsForHash().put(JWKS_KEY, keyId, retireAt + ":" + encoded);
+        
+        publicKeys.put(keyId, keyPair.getPublic());
+        current = new SigningKey(keyId, keyPair.getPrivate());
+        prune();
+    }
+    
+    public String getCurrentKeyId() {
+        return current.keyId;
+    }
+    
+    public PrivateKey getCurrentPrivateKey() {
+        return current.privateKey;
+    }
+    
+    @Override
+    public Key resolveSigningKey(JwsHeader header, Claims claims) {
+        String keyId = header.getKeyId();
+        if (keyId == null) {
+            throw new JwtException("Token has no key ID");
+        }
+        PublicKey key = publicKeys.get(keyId);
+        if (key == null) {
+            // Signed by another instance; its public key is in Redis
+            Object published = redisTemplate.opsForHash().get(JWKS_KEY, keyId);
+            if (published == null) {
+                throw new JwtException("Unknown signing key: " + keyId);
+            }
+            key = decode(published.toString());
+            publicKeys.put(keyId, key);
+        }
+        return key;
+    }
+    
+    /**
+     * Public keys of every instance that are still within their retention, as JWK objects
+     */
+    public List<Map<String, Object>> getJwks() {
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> keys = new ArrayList<>();
+        for (Map.Entry<Object, Object> entry : redisTemplate.opsForHash().entries(JWKS_KEY).entrySet()) {
+            String published = entry.getValue().toString();
+            if (retireAt(published) > now) {
+                keys.add(toJwk(entry.getKey().toString(), (ECPublicKey) decode(published)));
+            }
+        }
+        return keys;
+    }
+    
+    private void prune() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Object, Object> entry : redisTemplate.opsForHash().entries(JWKS_KEY).entrySet()) {
+            if (retireAt(entry.getValue().toString()) <= now) {
+                redisTemplate.opsForHash().delete(JWKS_KEY, entry.getKey());
+                publicKeys.remove(entry.getKey().toString());
+            }
+        }
+    }
+    
+    private static long retireAt(String published) {
+        return Long.parseLong(published.substring(0, published.indexOf(':')));
+    }
+    
+    private static PublicKey decode(String published) {
+        try {
+            byte[] encoded = Base64.getDecoder().decode(published.substring(published.indexOf(':') + 1));
+            return KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(encoded));
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to decode published signing key", e);
+        }
+    }
+    
+    private static KeyPair generateKeyPair() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            return generator.generateKeyPair();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to generate ES256 signing key", e);
+        }
+    }
+    
+    private static Map<String, Object> toJwk(String keyId, ECPublicKey key) {
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        jwk.put("kty", "EC");
+        jwk.put("crv", "P-256");
+        jwk.put("use", "sig");
+        jwk.put("alg", "ES256");
+        jwk.put("kid", keyId);
+        jwk.put("x", coordinate(key.getW().getAffineX()));
+        jwk.put("y", coordinate(key.getW().getAffineY()));
+        return jwk;
+    }
+    
+    private static String coordinate(BigInteger value) {
+        // Unsigned, left-padded to the 32-byte field size of P-256
+        byte[] bytes = value.toByteArray();
+        byte[] padded = new byte[32];
+        int length = Math.min(bytes.length, 32);
+        System.arraycopy(bytes, bytes.length - length, padded, 32 - length, length);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(padded);
+    }
+    
+    private static final class SigningKey {
+        private final String keyId;
+        private final PrivateKey privateKey;
+        
+        SigningKey(String keyId, PrivateKey privateKey) {
+            this.keyId = keyId;
+            this.privateKey = privateKey;
+        }
+    }
+}
+
@@ -3,16 +3,20 @@ package com.smartbus2plus.auth.service;
 import com.smartbus2plus.auth.dto.AuthDto;
 import com.smartbus2plus.auth.model.User;
 import com.smartbus2plus.auth.repository.UserRepository;
+import com.smartbus2plus.auth.security.LoginRateLimiter;
+import com.smartbus2plus.auth.security.PasswordHasher;
 import com.smartbus2plus.auth.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Authentication service for SmartBus2+
@@ -24,70 +28,122 @@ public class AuthService {
     private UserRepository userRepository;
     
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHasher passwordHasher;
+    
+    @Autowired
+    private LoginRateLimiter loginRateLimiter;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
     
     @Autowired
     private JwtUtil jwtUtil;
     
     @Autowired
-    private AuthenticationManager authenticationManager;
-    
-    public AuthDto.AuthResponse login(AuthDto.LoginRequest loginRequest) {
-        Authentication authentication = authenticationManager.authenticate(
-            new UsernamePasswordAuthenticationToken(
-                loginRequest.getUsername(),
-                loginRequest.getPassword()
-            )
-        );
-        
-        SecurityContextHolder.getContext().setAuthentication(authentication);
+    private TokenRevocationService tokenRevocationService;
+    
+    @Autowired
+    private RefreshTokenService refreshTokenService;
+    
+    @Autowired
+    private TakenNamesFilter takenNamesFilter;
+    
+    /**
+     * Check the password on the hashing pool; the request thread is released while it runs,
+     * and the token work after it runs on the application task executor
+     */
+    public CompletableFuture<AuthDto.AuthResponse> login(AuthDto.LoginRequest loginRequest, String clientIp) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Optional<User> user;
+        CompletableFuture<Boolean> passwordMatches;
+        try {
+            loginRateLimiter.check(clientIp, loginRequest.getUsername());
+            user = userRepository.findByUsernameAndIsActive(loginRequest.getUsername(), true);
+            String passwordHash = user.map(User::getPasswordHash).orElse(passwordHasher.getDummyHash());
+            passwordMatches = passwordHasher.matches(loginRequest.getPassword(), passwordHash);
+        } catch (RuntimeException e) {
+            // Rate limited or the hashing queue is full
+            sample.stop(loginTimer("rejected"));
+            throw e;
+        }
         
-        User user = (User) authentication.getPrincipal();
-        String token = jwtUtil.generateToken(user.getUsername());
+        return passwordMatches
+                .thenApply(matches -> {
+                    if (!matches || user.isEmpty()) {
+                        throw new BadCredentialsException("Bad credentials");
+                    }
+                    loginRateLimiter.reset(loginRequest.getUsername());
+                    upgradePasswordHash(user.get(), loginRequest.getPassword());
+                    return authResponse(user.get(), refreshTokenService.issue(user.get().getId()));
+                })
+                .whenComplete((response, error) -> sample.stop(loginTimer(response != null ? "success" : "failure")));
+    }
+    
+    /**
+     * Issue a new short-lived access token from a refresh token, without re-checking the password
+     */
+    public AuthDto.AuthResponse refresh(AuthDto.RefreshRequest refreshRequest) {
+        RefreshTokenService.Rotation rotation = refreshTokenService.rotate(refreshRequest.getRefreshToken());
+        User user = userRepository.findById(rotation.getUserId())
+                .filter(User::getIsActive)
+                .orElseThrow(() -> new RuntimeException("User not found or inactive"));
         
-        return new AuthDto.AuthResponse(
-            token,
-            user.getId(),
-            user.getUsername(),
-            user.getEmail(),
-            user.getFirstName(),
-            user.getLastName(),
-            user.getRole().name()
-        );
+        return authResponse(user, rotation.getRefreshToken());
     }
     
-    public AuthDto.AuthResponse register(AuthDto.RegisterRequest registerRequest) {
-        if (userRepository.existsByUsername(registerRequest.getUsername())) {
+    /**
+     * Insert-first registration: the unique constraints decide, and the Bloom filter only
+     * spares the password hash for names that are very likely taken already
+     */
+    public CompletableFuture<AuthDto.AuthResponse> register(AuthDto.RegisterRequest registerRequest, String clientIp) {
+        loginRateLimiter.check(clientIp);
+        
+        if (takenNamesFilter.mightBeTakenUsername(registerRequest.getUsername())
+                && userRepository.existsByUsername(registerRequest.getUsername())) {
             throw new RuntimeException("Username is already taken!");
         }
         
-        if (userRepository.existsByEmail(registerRequest.getEmail())) {
+        if (takenNamesFilter.mightBeTakenEmail(registerRequest.getEmail())
+                && userRepository.existsByEmail(registerRequest.getEmail())) {
             throw new RuntimeException("Email is already in use!");
         }
         
-        User user = new User(
-            registerRequest.getUsername(),
-            registerRequest.getEmail(),
-            passwordEncoder.encode(registerRequest.getPassword()),
-            registerRequest.getFirstName(),
-            registerRequest.getLastName()
-        );
-        
-        user.setPhone(registerRequest.getPhone());
-        
-        User savedUser = userRepository.save(user);
-        
-        String token = jwtUtil.generateToken(savedUser.getUsername());
-        
-        return new AuthDto.AuthResponse(
-            token,
-            savedUser.getId(),
-            savedUser.getUsername(),
-            savedUser.getEmail(),
-            savedUser.getFirstName(),
-            savedUser.getLastName(),
-            savedUser.getRole().name()
-        );
+        return passwordHasher.encode(registerRequest.getPassword()).thenApply(passwordHash -> {
+            User user = new User(
+                registerRequest.getUsername(),
+                registerRequest.getEmail(),
+                passwordHash,
+                registerRequest.getFirstName(),
+                registerRequest.getLastName()
+            );
+            
+            user.setPhone(registerRequest.getPhone());
+            
+            User savedUser;
+            try {
+                savedUser = userRepository.saveAndFlush(user);
+            } catch (DataIntegrityViolationException e) {
+                throw duplicateRegistration(e);
+            }
+            takenNamesFilter.add(savedUser.getUsername(), savedUser.getEmail());
+            
+            return authResponse(savedUser, refreshTokenService.issue(savedUser.getId()));
+        });
+    }
+    
+    /**
+     * Availability for as-you-type checks; answered from the Bloom filter unless it reports a possible match
+     */
+    public AuthDto.Availability checkAvailability(String username, String email) {
+        Boolean usernameAvailable = null;
+        if (username != null) {
+            usernameAvailable = !takenNamesFilter.mightBeTakenUsername(username) || !userRepository.existsByUsername(username);
+        }
+        Boolean emailAvailable = null;
+        if (email != null) {
+            emailAvailable = !takenNamesFilter.mightBeTakenEmail(email) || !userRepository.existsByEmail(email);
+        }
+        return new AuthDto.Availability(usernameAvailable, emailAvailable);
     }
     
     public Optional<User> getUserByUsername(String username) {
@@ -100,15 +156,85 @@ public class AuthService {
     
     public boolean validateToken(String token) {
         try {
-            String username = jwtUtil.extractUsername(token);
-            return jwtUtil.validateToken(token, username);
+            return tokenRevocationService.isActive(jwtUtil.parseToken(token));
         } catch (Exception e) {
             return false;
         }
     }
     
+    /**
+     * Revoke the given token and its refresh token, or every token issued to its user so far
+     */
+    public void logout(String token, String refreshToken, boolean allSessions) {
+        Claims claims = jwtUtil.parseToken(token);
+        if (allSessions) {
+            // Refresh tokens carry the token version too, so this ends every session
+            tokenRevocationService.revokeAll(claims.get("uid", Long.class));
+        } else {
+            tokenRevocationService.revoke(claims);
+            if (refreshToken != null) {
+                refreshTokenService.revoke(refreshToken);
+            }
+        }
+    }
+    
     public String extractUsernameFromToken(String token) {
         return jwtUtil.extractUsername(token);
     }
+    
+    private void upgradePasswordHash(User user, String rawPassword) {
+        if (!passwordHasher.needsUpgrade(user.getPasswordHash())) {
+            return;
+        }
+        try {
+            // Re-hash at the configured cost in the background; a later login retries if this is skipped
+            passwordHasher.encode(rawPassword)
+                    .thenAccept(passwordHash -> userRepository.updatePasswordHash(user.getId(), passwordHash));
+        } catch (RuntimeException e) {
+            // Hashing pool is saturated; leave the old hash in place
+        }
+    }
+    
+    private RuntimeException duplicateRegistration(DataIntegrityViolationException e) {
+        // Postgres names the unique constraints users_username_key and users_email_key
+        String constraint = null;
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                constraint = ((ConstraintViolationException) cause).getConstraintName();
+                break;
+            }
+        }
+        String detail = constraint != null ? constraint : String.valueOf(e.getMostSpecificCause().getMessage());
+        if (detail.contains("username")) {
+            return new RuntimeException("Username is already taken!");
+        }
+        if (detail.contains("email")) {
+            return new RuntimeException("Email is already in use!");
+        }
+        return new RuntimeException("Registration failed: " + e.getMostSpecificCause().getMessage());
+    }
+    
+    private Timer loginTimer(String outcome) {
+        return Timer.builder("auth.login")
+                .description("Login latency including queueing for the password hashing pool")
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+    
+    private AuthDto.AuthResponse authResponse(User user, String refreshToken) {
+        String token = jwtUtil.generateToken(user, tokenRevocationService.getTokenVersion(user.getId()));
+        
+        return new AuthDto.AuthResponse(
+            token,
+            refreshToken,
+            user.getId(),
+            user.getUsername(),
+            user.getEmail(),
+            user.getFirstName(),
+            user.getLastName(),
+            user.getRole().name()
+        );
+    }
 }
 
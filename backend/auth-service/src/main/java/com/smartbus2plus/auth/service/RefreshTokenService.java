@@ -0,0 +1,140 @@
+package com.smartbus2plus.auth.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Opaque refresh tokens stored hashed in Redis.
+ * Tokens belong to a family started at login; every refresh rotates the family to a new
+ * token with a fresh idle expiry. Presenting a token that has already been rotated away
+ * means it was copied, so the whole family is revoked.
+ */
+@Service
+public class RefreshTokenService {
+    
+    private static final String TOKEN_PREFIX = "auth:refresh:";
+    private static final String FAMILY_PREFIX = "auth:refresh-family:";
+    
+    // Move the family to the new token only if the presented one is still its current token
+    private static final RedisScript<Long> ROTATE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+            "redis.call('SET', KEYS[1], ARGV[2], 'KEEPTTL') return 1 end return 0", Long.class);
+    
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+    
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+    
+    @Value("${jwt.refresh.idle-expiration:604800000}") // 7 days without use
+    private long idleExpiration;
+    
+    @Value("${jwt.refresh.max-lifetime:2592000000}") // 30 days since login
+    private long maxLifetime;
+    
+    private final SecureRandom random = new SecureRandom();
+    
+    /**
+     * Start a new token family for a fresh login and return its first refresh token
+     */
+    public String issue(Long userId) {
+        String familyId = UUID.randomUUID().toString();
+        String token = newToken();
+        redisTemplate.opsForValue().set(FAMILY_PREFIX + familyId, hash(token), Duration.ofMillis(maxLifetime));
+        store(token, familyId, userId);
+        return token;
+    }
+    
+    /**
+     * Exchange a refresh token for the next one in its family.
+     * Returns the user ID and the new token; throws if the token is unknown, expired,
+     * issued before the user's tokens were revoked, or already used.
+     */
+    public Rotation rotate(String refreshToken) {
+        String tokenHash = hash(refreshToken);
+        String record = redisTemplate.opsForValue().get(TOKEN_PREFIX + tokenHash);
+        if (record == null) {
+            throw new RuntimeException("Invalid or expired refresh token");
+        }
+        String[] fields = record.split(":");
+        String familyId = fields[0];
+        Long userId = Long.parseLong(fields[1]);
+        long tokenVersion = Long.parseLong(fields[2]);
+        
+        if (tokenVersion < tokenRevocationService.getTokenVersion(userId)) {
+            revokeFamily(familyId);
+            throw new RuntimeException("Refresh token has been revoked");
+        }
+        
+        String next = newToken();
+        Long rotated = redisTemplate.execute(ROTATE_SCRIPT, List.of(FAMILY_PREFIX + familyId), tokenHash, hash(next));
+        if (rotated == null || rotated == 0) {
+            // Already rotated (or the family was revoked): treat as theft and end the session
+            revokeFamily(familyId);
+            throw new RuntimeException("Refresh token reuse detected");
+        }
+        
+        // The old record stays until it expires so a replay of it is recognised as reuse
+        store(next, familyId, userId);
+        return new Rotation(userId, next);
+    }
+    
+    public void revoke(String refreshToken) {
+        String record = redisTemplate.opsForValue().get(TOKEN_PREFIX + hash(refreshToken));
+        if (record != null) {
+            revokeFamily(record.split(":")[0]);
+        }
+    }
+    
+    private void revokeFamily(String familyId) {
+        redisTemplate.delete(FAMILY_PREFIX + familyId);
+    }
+    
+    private void store(String token, String familyId, Long userId) {
+        String record = familyId + ":" + userId + ":" + tokenRevocationService.getTokenVersion(userId);
+        redisTemplate.opsForValue().set(TOKEN_PREFIX + hash(token), record, Duration.ofMillis(idleExpiration));
+    }
+    
+    private String newToken() {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+    
+    private static String hash(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    public static final class Rotation {
+        private final Long userId;
+        private final String refreshToken;
+        
+        Rotation(Long userId, String refreshToken) {
+            this.userId = userId;
+            this.refreshToken = refreshToken;
+        }
+        
+        public Long getUserId() { return userId; }
+        public String getRefreshToken() { return refreshToken; }
+    }
+}
+
@@ -0,0 +1,146 @@
+package com.smartbus2plus.auth.service;
+
+import com.smartbus2plus.auth.repository.UserRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Bloom filter of taken usernames and emails, kept as a Redis bitmap so every instance
+ * sees registrations made by the others. A negative answer means the name is definitely
+ * free; a positive one only means it needs an exact database check.
+ */
+@Service
+public class TakenNamesFilter {
+    
+    private static final String BITS_KEY = "auth:taken-names:bits";
+    private static final String READY_KEY = "auth:taken-names:ready";
+    
+    private static final RedisScript<Long> CONTAINS_SCRIPT = new DefaultRedisScript<>(
+            "for _, bit in ipairs(ARGV) do " +
+            "if redis.call('GETBIT', KEYS[1], bit) == 0 then return 0 end end return 1", Long.class);
+    
+    private static final RedisScript<Long> ADD_SCRIPT = new DefaultRedisScript<>(
+            "for _, bit in ipairs(ARGV) do redis.call('SETBIT', KEYS[1], bit, 1) end return 1", Long.class);
+    
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Value("${auth.registration.bloom.expected-insertions:1000000}")
+    private int expectedInsertions;
+    
+    @Value("${auth.registration.bloom.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+    
+    @Value("${auth.registration.bloom.populate-batch-size:5000}")
+    private int batchSize;
+    
+    private long bitCount;
+    
+    private int hashCount;
+    
+    private volatile boolean ready;
+    
+    @PostConstruct
+    public void init() {
+        int n = Math.max(expectedInsertions, 1);
+        bitCount = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+    
+    /**
+     * Load every existing username and email once per Redis dataset.
+     * Registrations add their own bits, so ones racing with this load are not lost.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void populate() {
+        if (Boolean.TRUE.equals(redisTemplate.hasKey(READY_KEY))) {
+            ready = true;
+            return;
+        }
+        
+        long afterId = 0;
+        List<Object[]> batch;
+        do {
+            batch = userRepository.findIdentifiersAfter(afterId, PageRequest.of(0, batchSize));
+            List<String> bits = new ArrayList<>();
+            for (Object[] row : batch) {
+                afterId = (Long) row[0];
+                bits.addAll(bits("u:" + row[1]));
+                bits.addAll(bits("e:" + row[2]));
+            }
+            if (!bits.isEmpty()) {
+                redisTemplate.execute(ADD_SCRIPT, Collections.singletonList(BITS_KEY), bits.toArray());
+            }
+        } while (batch.size() == batchSize);
+        
+        redisTemplate.opsForValue().set(READY_KEY, "1");
+        ready = true;
+    }
+    
+    public boolean mightBeTakenUsername(String username) {
+        return mightContain("u:" + username);
+    }
+    
+    public boolean mightBeTakenEmail(String email) {
+        return mightContain("e:" + email);
+    }
+    
+    public void add(String username, String email) {
+        List<String> bits = new ArrayList<>(bits("u:" + username));
+        bits.addAll(bits("e:" + email));
+        redisTemplate.execute(ADD_SCRIPT, Collections.singletonList(BITS_KEY), bits.toArray());
+    }
+    
+    private boolean mightContain(String key) {
+        if (!ready) {
+            // Until the existing names are loaded a miss proves nothing
+            return true;
+        }
+        Long result = redisTemplate.execute(CONTAINS_SCRIPT, Collections.singletonList(BITS_KEY), bits(key).toArray());
+        return result == null || result != 0;
+    }
+    
+    private List<String> bits(String key) {
+        long hash = hash64(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        List<String> bits = new ArrayList<>(hashCount);
+        for (int i = 1; i <= hashCount; i++) {
+            // Kirsch-Mitzenmacher double hashing: k probes from two base hashes
+            bits.add(String.valueOf(((h1 + i * h2) & Integer.MAX_VALUE) % bitCount));
+        }
+        return bits;
+    }
+    
+    private static long hash64(String key) {
+        // FNV-1a over the UTF-8 bytes followed by a 64-bit finalizer
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
+
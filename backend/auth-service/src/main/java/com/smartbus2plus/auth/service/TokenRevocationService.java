@@ -0,0 +1,62 @@
+package com.smartbus2plus.auth.service;
+
+import io.jsonwebtoken.Claims;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Token revocation backed by Redis.
+ * Single tokens are revoked by their ID until they would have expired; all of a user's
+ * tokens are revoked at once by bumping the user's token version, which every token carries.
+ */
+@Service
+public class TokenRevocationService {
+    
+    private static final String REVOKED_PREFIX = "auth:revoked:";
+    private static final String VERSION_PREFIX = "auth:token-version:";
+    
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+    
+    public long getTokenVersion(Long userId) {
+        String version = redisTemplate.opsForValue().get(VERSION_PREFIX + userId);
+        return version != null ? Long.parseLong(version) : 0;
+    }
+    
+    /**
+     * Whether a verified token is neither revoked nor older than its user's token version.
+     * Both keys are fetched in one round-trip.
+     */
+    public boolean isActive(Claims claims) {
+        Long userId = claims.get("uid", Long.class);
+        Long tokenVersion = claims.get("ver", Long.class);
+        if (userId == null || tokenVersion == null || claims.getId() == null) {
+            return false;
+        }
+        
+        List<String> values = redisTemplate.opsForValue().multiGet(
+                Arrays.asList(REVOKED_PREFIX + claims.getId(), VERSION_PREFIX + userId));
+        if (values == null || values.get(0) != null) {
+            return false;
+        }
+        long currentVersion = values.get(1) != null ? Long.parseLong(values.get(1)) : 0;
+        return tokenVersion >= currentVersion;
+    }
+    
+    public void revoke(Claims claims) {
+        long remaining = claims.getExpiration().getTime() - System.currentTimeMillis();
+        if (remaining > 0) {
+            redisTemplate.opsForValue().set(REVOKED_PREFIX + claims.getId(), "1", Duration.ofMillis(remaining));
+        }
+    }
+    
+    public void revokeAll(Long userId) {
+        redisTemplate.opsForValue().increment(VERSION_PREFIX + userId);
+    }
+}
+
@@ -1,57 +1,111 @@
 package com.smartbus2plus.auth.util;
 
+import com.smartbus2plus.auth.model.User;
+import com.smartbus2plus.auth.security.SigningKeyManager;
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
 
 /**
- * JWT utility class for token generation and validation
+ * JWT utility class for token generation and validation.
+ * Tokens are signed with ES256 under the current rotating key ID. The parser is built once; verified tokens are remembered in a small
+ * LRU keyed by a SHA-256 of the token until they expire, so repeat requests skip the
+ * signature check and JSON decoding.
  */
 @Component
 public class JwtUtil {
     
-    @Value("${jwt.secret:SmartBus2PlusSecretKeyForJWTTokenGeneration2024}")
-    private String secret;
+    @Autowired
+    private SigningKeyManager signingKeyManager;
     
-    @Value("${jwt.expiration:86400000}") // 24 hours
+    @Value("${jwt.expiration:300000}") // 5 minutes; clients renew through a refresh token
     private Long expiration;
     
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
+    @Value("${jwt.cache.max-entries:10000}")
+    private int cacheMaxEntries;
+    
+    private JwtParser parser;
+    
+    private Map<ByteBuffer, VerifiedToken> verified;
+    
+    @PostConstruct
+    public void init() {
+        parser = Jwts.parserBuilder()
+                .setSigningKeyResolver(signingKeyManager)
+                .build();
+        verified = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, VerifiedToken> eldest) {
+                return size() > cacheMaxEntries;
+            }
+        };
     }
     
-    public String generateToken(String username) {
+    /**
+     * Issue a token carrying the user's ID, role and token version as signed claims,
+     * so requests can be authorised without looking the user up again.
+     */
+    public String generateToken(User user, long tokenVersion) {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + expiration);
         
         return Jwts.builder()
-                .setSubject(username)
+                .setHeaderParam(JwsHeader.KEY_ID, signingKeyManager.getCurrentKeyId())
+                .setId(UUID.randomUUID().toString())
+                .setSubject(user.getUsername())
+                .claim("uid", user.getId())
+                .claim("role", user.getRole().name())
+                .claim("ver", tokenVersion)
                 .setIssuedAt(now)
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .signWith(signingKeyManager.getCurrentPrivateKey(), SignatureAlgorithm.ES256)
                 .compact();
     }
     
+    /**
+     * Verify the token and return its claims, parsing it at most once while it stays cached.
+     * Throws a JwtException if the signature is invalid or the token has expired.
+     */
+    public Claims parseToken(String token) {
+        ByteBuffer key = digest(token);
+        long now = System.currentTimeMillis();
+        synchronized (verified) {
+            VerifiedToken cached = verified.get(key);
+            if (cached != null) {
+                if (cached.expiresAt > now) {
+                    return cached.claims;
+                }
+                verified.remove(key);
+            }
+        }
+        
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        Date expiresAt = claims.getExpiration();
+        if (expiresAt != null) {
+            synchronized (verified) {
+                verified.put(key, new VerifiedToken(claims, expiresAt.getTime()));
+            }
+        }
+        return claims;
+    }
+    
     public String extractUsername(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
+        return parseToken(token).getSubject();
     }
     
     public Date extractExpiration(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getExpiration();
+        return parseToken(token).getExpiration();
     }
     
     public boolean isTokenExpired(String token) {
@@ -63,13 +117,41 @@ public class JwtUtil {
         }
     }
     
+    public boolean validateToken(String token) {
+        try {
+            parseToken(token);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+    
     public boolean validateToken(String token, String username) {
         try {
-            String extractedUsername = extractUsername(token);
-            return extractedUsername.equals(username) && !isTokenExpired(token);
+            // Parsing rejects bad signatures and expired tokens, so one parse covers both checks
+            return parseToken(token).getSubject().equals(username);
         } catch (Exception e) {
             return false;
         }
     }
+    
+    private static ByteBuffer digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return ByteBuffer.wrap(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    private static final class VerifiedToken {
+        private final Claims claims;
+        private final long expiresAt;
+        
+        VerifiedToken(Claims claims, long expiresAt) {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+        }
+    }
 }
 
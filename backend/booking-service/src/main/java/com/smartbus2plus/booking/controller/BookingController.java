@@ -1,10 +1,12 @@
 package com.smartbus2plus.booking.controller;
 
+import com.smartbus2plus.booking.dto.BookingDto;
 import com.smartbus2plus.booking.model.Booking;
 import com.smartbus2plus.booking.service.BookingService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -63,6 +65,21 @@ public class BookingController {
         return ResponseEntity.ok(booking);
     }
     
+    @GetMapping("/manifest")
+    @Operation(summary = "Get boarding manifest", description = "Retrieve active bookings with RFID tickets for a travel date, with bus and departure time")
+    public ResponseEntity<List<BookingDto.ManifestEntry>> getManifest(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate travelDate) {
+        List<BookingDto.ManifestEntry> manifest = bookingService.getManifest(travelDate);
+        return ResponseEntity.ok(manifest);
+    }
+    
+    @PostMapping("/missed")
+    @Operation(summary = "Mark no-shows as missed", description = "Internal; mark bookings that did not board by departure plus the grace period as missed and release their seats")
+    public ResponseEntity<List<Long>> markAsMissed(@RequestBody List<Long> bookingIds) {
+        List<Long> missed = bookingService.markAsMissed(bookingIds);
+        return ResponseEntity.ok(missed);
+    }
+    
     @PutMapping("/{bookingId}/confirm")
     @Operation(summary = "Confirm booking", description = "Confirm a pending booking")
     public ResponseEntity<Booking> confirmBooking(@PathVariable Long bookingId) {
@@ -0,0 +1,98 @@
+package com.smartbus2plus.booking.dto;
+
+import com.smartbus2plus.booking.model.Booking;
+import com.smartbus2plus.booking.model.ScheduleRef;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * DTOs for boarding manifests and booking events
+ */
+public class BookingDto {
+    
+    public static class ManifestEntry {
+        private Long bookingId;
+        private String rfidTicketId;
+        private Long userId;
+        private Long scheduleId;
+        private Long busId;
+        private String seatNumber;
+        private LocalDate travelDate;
+        private LocalTime departureTime;
+        private Booking.BookingStatus bookingStatus;
+        private Booking.BoardingStatus boardingStatus;
+        
+        public ManifestEntry() {}
+        
+        public ManifestEntry(Booking booking, ScheduleRef schedule) {
+            this.bookingId = booking.getId();
+            this.rfidTicketId = booking.getRfidTicketId();
+            this.userId = booking.getUserId();
+            this.scheduleId = booking.getScheduleId();
+            this.busId = schedule != null ? schedule.getBusId() : null;
+            this.seatNumber = booking.getSeatNumber();
+            this.travelDate = booking.getTravelDate();
+            this.departureTime = schedule != null ? schedule.getDepartureTime() : null;
+            this.bookingStatus = booking.getBookingStatus();
+            this.boardingStatus = booking.getBoardingStatus();
+        }
+        
+        // Getters and Setters
+        public Long getBookingId() { return bookingId; }
+        public void setBookingId(Long bookingId) { this.bookingId = bookingId; }
+        
+        public String getRfidTicketId() { return rfidTicketId; }
+        public void setRfidTicketId(String rfidTicketId) { this.rfidTicketId = rfidTicketId; }
+        
+        public Long getUserId() { return userId; }
+        public void setUserId(Long userId) { this.userId = userId; }
+        
+        public Long getScheduleId() { return scheduleId; }
+        public void setScheduleId(Long scheduleId) { this.scheduleId = scheduleId; }
+        
+        public Long getBusId() { return busId; }
+        public void setBusId(Long busId) { this.busId = busId; }
+        
+        public String getSeatNumber() { return seatNumber; }
+        public void setSeatNumber(String seatNumber) { this.seatNumber = seatNumber; }
+        
+        public LocalDate getTravelDate() { return travelDate; }
+        public void setTravelDate(LocalDate travelDate) { this.travelDate = travelDate; }
+        
+        public LocalTime getDepartureTime() { return departureTime; }
+        public void setDepartureTime(LocalTime departureTime) { this.departureTime = departureTime; }
+        
+        public Booking.BookingStatus getBookingStatus() { return bookingStatus; }
+        public void setBookingStatus(Booking.BookingStatus bookingStatus) { this.bookingStatus = bookingStatus; }
+        
+        public Booking.BoardingStatus getBoardingStatus() { return boardingStatus; }
+        public void setBoardingStatus(Booking.BoardingStatus boardingStatus) { this.boardingStatus = boardingStatus; }
+    }
+    
+    public static class BookingEvent {
+        private String eventType; // CREATED, CONFIRMED, CANCELLED, BOARDED, MISSED
+        private ManifestEntry booking;
+        private LocalDateTime eventTime;
+        
+        public BookingEvent() {}
+        
+        public BookingEvent(String eventType, ManifestEntry booking) {
+            this.eventType = eventType;
+            this.booking = booking;
+            this.eventTime = LocalDateTime.now();
+        }
+        
+        // Getters and Setters
+        public String getEventType() { return eventType; }
+        public void setEventType(String eventType) { this.eventType = eventType; }
+        
+        public ManifestEntry getBooking() { return booking; }
+        public void setBooking(ManifestEntry booking) { this.booking = booking; }
+        
+        public LocalDateTime getEventTime() { return eventTime; }
+        public void setEventTime(LocalDateTime eventTime) { this.eventTime = eventTime; }
+    }
+}
+
@@ -0,0 +1,33 @@
+package com.smartbus2plus.booking.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalTime;
+
+/**
+ * Read-only view of the schedules table owned by inventory-service,
+ * used to resolve the bus and departure time of a booking
+ */
+@Entity
+@Immutable
+@Table(name = "schedules")
+public class ScheduleRef {
+    
+    @Id
+    private Long id;
+    
+    @Column(name = "bus_id")
+    private Long busId;
+    
+    @Column(name = "departure_time")
+    private LocalTime departureTime;
+    
+    // Getters
+    public Long getId() { return id; }
+    
+    public Long getBusId() { return busId; }
+    
+    public LocalTime getDepartureTime() { return departureTime; }
+}
+
@@ -2,11 +2,13 @@ package com.smartbus2plus.booking.repository;
 
 import com.smartbus2plus.booking.model.Booking;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,8 +28,14 @@ public interface BookingRepository extends JpaRepository<Booking, Long> {
     
     List<Booking> findByTravelDateAndBookingStatus(LocalDate travelDate, Booking.BookingStatus status);
     
+    List<Booking> findByTravelDateAndBookingStatusIn(LocalDate travelDate, Collection<Booking.BookingStatus> statuses);
+    
     List<Booking> findByBoardingStatus(Booking.BoardingStatus boardingStatus);
     
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Booking b SET b.boardingStatus = :boardingStatus WHERE b.id IN :ids")
+    int updateBoardingStatus(@Param("ids") Collection<Long> ids, @Param("boardingStatus") Booking.BoardingStatus boardingStatus);
+    
     @Query("SELECT b FROM Booking b WHERE b.userId = :userId AND b.travelDate >= :date ORDER BY b.travelDate ASC")
     List<Booking> findUpcomingBookingsByUser(@Param("userId") Long userId, @Param("date") LocalDate date);
     
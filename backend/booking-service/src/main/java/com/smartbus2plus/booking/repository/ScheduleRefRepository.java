@@ -0,0 +1,13 @@
+package com.smartbus2plus.booking.repository;
+
+import com.smartbus2plus.booking.model.ScheduleRef;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Read-only repository for schedule references
+ */
+@Repository
+public interface ScheduleRefRepository extends JpaRepository<ScheduleRef, Long> {
+}
+
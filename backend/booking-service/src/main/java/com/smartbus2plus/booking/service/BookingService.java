@@ -1,17 +1,29 @@
 package com.smartbus2plus.booking.service;
 
+import com.smartbus2plus.booking.dto.BookingDto;
 import com.smartbus2plus.booking.model.Booking;
+import com.smartbus2plus.booking.model.ScheduleRef;
 import com.smartbus2plus.booking.repository.BookingRepository;
+import com.smartbus2plus.booking.repository.ScheduleRefRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -23,12 +35,18 @@ public class BookingService {
     @Autowired
     private BookingRepository bookingRepository;
     
+    @Autowired
+    private ScheduleRefRepository scheduleRefRepository;
+    
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
     
     @Autowired
     private KafkaTemplate<String, Object> kafkaTemplate;
     
+    @Value("${booking.missed.grace-minutes:2}")
+    private long missedGraceMinutes;
+    
     public Booking createBooking(Long userId, Long scheduleId, String seatNumber, 
                                BigDecimal totalAmount, LocalDate travelDate) {
         
@@ -53,7 +71,7 @@ public class BookingService {
         Booking saved = bookingRepository.save(booking);
         
         // Send to Kafka
-        kafkaTemplate.send("booking-events", saved);
+        publishEvent("CREATED", saved);
         
         return saved;
     }
@@ -77,7 +95,9 @@ public class BookingService {
         return bookingRepository.findById(bookingId)
                 .map(booking -> {
                     booking.setBookingStatus(Booking.BookingStatus.CONFIRMED);
-                    return bookingRepository.save(booking);
+                    Booking saved = bookingRepository.save(booking);
+                    publishEvent("CONFIRMED", saved);
+                    return saved;
                 })
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
     }
@@ -87,7 +107,9 @@ public class BookingService {
                 .map(booking -> {
                     booking.setBookingStatus(Booking.BookingStatus.CANCELLED);
                     releaseSeat(booking.getScheduleId(), booking.getSeatNumber(), booking.getTravelDate());
-                    return bookingRepository.save(booking);
+                    Booking saved = bookingRepository.save(booking);
+                    publishEvent("CANCELLED", saved);
+                    return saved;
                 })
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
     }
@@ -97,11 +119,67 @@ public class BookingService {
                 .map(booking -> {
                     booking.setBoardingStatus(Booking.BoardingStatus.BOARDED);
                     booking.setBoardingTime(LocalDateTime.now());
-                    return bookingRepository.save(booking);
+                    Booking saved = bookingRepository.save(booking);
+                    publishEvent("BOARDED", saved);
+                    return saved;
                 })
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
     }
     
+    /**
+     * Marks the given no-show bookings MISSED in one update and releases their seats for resale.
+     * Bookings that boarded or were cancelled in the meantime, or whose departure plus the grace
+     * period has not passed yet, are left alone whatever the caller claims.
+     */
+    @Transactional
+    public List<Long> markAsMissed(List<Long> bookingIds) {
+        List<Booking> bookings = bookingRepository.findAllById(bookingIds);
+        Set<Long> scheduleIds = new HashSet<>();
+        for (Booking booking : bookings) {
+            scheduleIds.add(booking.getScheduleId());
+        }
+        Map<Long, ScheduleRef> schedules = scheduleRefRepository.findAllById(scheduleIds).stream()
+                .collect(Collectors.toMap(ScheduleRef::getId, Function.identity()));
+        LocalDateTime now = LocalDateTime.now();
+        
+        List<Booking> missed = new ArrayList<>();
+        List<String> seatKeys = new ArrayList<>();
+        for (Booking booking : bookings) {
+            if (booking.getBoardingStatus() == Booking.BoardingStatus.NOT_BOARDED
+                    && (booking.getBookingStatus() == Booking.BookingStatus.PENDING
+                        || booking.getBookingStatus() == Booking.BookingStatus.CONFIRMED)
+                    && hasDeparted(booking, schedules.get(booking.getScheduleId()), now)) {
+                missed.add(booking);
+                seatKeys.add(String.format("seat:%s:%s:%s", booking.getScheduleId(), booking.getSeatNumber(), booking.getTravelDate()));
+            }
+        }
+        if (missed.isEmpty()) {
+            return new ArrayList<>();
+        }
+        
+        List<Long> missedIds = new ArrayList<>(missed.size());
+        for (Booking booking : missed) {
+            missedIds.add(booking.getId());
+        }
+        bookingRepository.updateBoardingStatus(missedIds, Booking.BoardingStatus.MISSED);
+        redisTemplate.delete(seatKeys);
+        
+        for (Booking booking : missed) {
+            booking.setBoardingStatus(Booking.BoardingStatus.MISSED);
+            publishEvent("MISSED", booking);
+        }
+        return missedIds;
+    }
+    
+    private boolean hasDeparted(Booking booking, ScheduleRef schedule, LocalDateTime now) {
+        // Without a departure time there is nothing to check against, so the seat is kept
+        if (schedule == null || schedule.getDepartureTime() == null || booking.getTravelDate() == null) {
+            return false;
+        }
+        LocalDateTime deadline = booking.getTravelDate().atTime(schedule.getDepartureTime()).plusMinutes(missedGraceMinutes);
+        return now.isAfter(deadline);
+    }
+    
     public List<Booking> getBookingsByUser(Long userId) {
         return bookingRepository.findByUserIdOrderByCreatedAtDesc(userId);
     }
@@ -119,5 +197,34 @@ public class BookingService {
         return bookingRepository.findByRfidTicketId(rfidTicketId)
                 .orElseThrow(() -> new RuntimeException("Booking not found"));
     }
+    
+    public List<BookingDto.ManifestEntry> getManifest(LocalDate travelDate) {
+        List<Booking> bookings = bookingRepository.findByTravelDateAndBookingStatusIn(
+            travelDate, EnumSet.of(Booking.BookingStatus.PENDING, Booking.BookingStatus.CONFIRMED));
+        
+        // One lookup for all schedules on the manifest rather than one per booking
+        Set<Long> scheduleIds = new HashSet<>();
+        for (Booking booking : bookings) {
+            scheduleIds.add(booking.getScheduleId());
+        }
+        Map<Long, ScheduleRef> schedules = scheduleRefRepository.findAllById(scheduleIds).stream()
+                .collect(Collectors.toMap(ScheduleRef::getId, Function.identity()));
+        
+        List<BookingDto.ManifestEntry> manifest = new ArrayList<>(bookings.size());
+        for (Booking booking : bookings) {
+            if (booking.getRfidTicketId() != null) {
+                manifest.add(new BookingDto.ManifestEntry(booking, schedules.get(booking.getScheduleId())));
+            }
+        }
+        return manifest;
+    }
+    
+    private void publishEvent(String eventType, Booking booking) {
+        ScheduleRef schedule = scheduleRefRepository.findById(booking.getScheduleId()).orElse(null);
+        BookingDto.ManifestEntry entry = new BookingDto.ManifestEntry(booking, schedule);
+        // Keyed by bus so every event for a bus's manifest stays in order on one partition
+        String key = entry.getBusId() != null ? String.valueOf(entry.getBusId()) : null;
+        kafkaTemplate.send("booking-events", key, new BookingDto.BookingEvent(eventType, entry));
+    }
 }
 
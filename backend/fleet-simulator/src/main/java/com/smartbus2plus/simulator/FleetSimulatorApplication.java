@@ -0,0 +1,83 @@
+package com.smartbus2plus.simulator;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * SmartBus2+ Fleet Simulator
+ * Emulates N buses x M sensors sending telemetry at a fixed rate over HTTP batches or Kafka
+ */
+public class FleetSimulatorApplication {
+    
+    public static void main(String[] args) throws InterruptedException {
+        SimulatorConfig config;
+        try {
+            config = SimulatorConfig.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(SimulatorConfig.usage());
+            System.exit(2);
+            return;
+        }
+        
+        ReadingGenerator generator = new ReadingGenerator(config);
+        System.out.printf("🚌 SmartBus2+ Fleet Simulator: %d buses x %d sensors, %.0f readings/s for %ds over %s (seed %d)%n",
+                config.getBuses(), config.getSensorsPerBus(), config.getRate(),
+                config.getDurationSeconds(), config.getMode(), config.getSeed());
+        
+        try (TelemetrySink sink = config.getMode() == SimulatorConfig.Mode.KAFKA
+                ? new KafkaSink(config) : new HttpBatchSink(config)) {
+            LatencyReport report = new LatencyReport(System.out);
+            ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor();
+            reporter.scheduleAtFixedRate(report::printInterval, 1, 1, TimeUnit.SECONDS);
+            
+            run(config, generator, sink, report);
+            
+            reporter.shutdownNow();
+            report.printSummary(config.getRate());
+        }
+    }
+    
+    private static void run(SimulatorConfig config, ReadingGenerator generator,
+                            TelemetrySink sink, LatencyReport report) throws InterruptedException {
+        // Open-loop pacing: batch i is due at start + i * interval regardless of how the
+        // previous batches fared, and its latency is measured from that due time
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) * config.getBatchSize() / config.getRate());
+        long startNanos = System.nanoTime();
+        long endNanos = startNanos + TimeUnit.SECONDS.toNanos(config.getDurationSeconds());
+        Semaphore inFlight = new Semaphore(config.getMaxInFlight());
+        
+        for (long i = 0; ; i++) {
+            long intendedNanos = startNanos + i * intervalNanos;
+            if (intendedNanos >= endNanos) {
+                break;
+            }
+            long wait;
+            while ((wait = intendedNanos - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            
+            List<TelemetryReading> batch = generator.nextBatch(config.getBatchSize());
+            inFlight.acquire();
+            CompletableFuture<Void> sent;
+            try {
+                sent = sink.send(batch);
+            } catch (RuntimeException e) {
+                sent = CompletableFuture.failedFuture(e);
+            }
+            sent.whenComplete((ignored, error) -> {
+                report.record(System.nanoTime() - intendedNanos, batch.size(), error == null);
+                inFlight.release();
+            });
+        }
+        
+        // Drain outstanding batches before reporting
+        inFlight.acquire(config.getMaxInFlight());
+    }
+}
+
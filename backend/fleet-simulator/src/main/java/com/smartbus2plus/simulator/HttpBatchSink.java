@@ -0,0 +1,64 @@
+package com.smartbus2plus.simulator;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Posts batches to POST /api/iot/telemetry/batch
+ */
+public class HttpBatchSink implements TelemetrySink {
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ExecutorService executor;
+    private final HttpClient client;
+    private final URI endpoint;
+    
+    public HttpBatchSink(SimulatorConfig config) {
+        this.executor = Executors.newFixedThreadPool(Math.min(config.getMaxInFlight(), 32));
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+        this.endpoint = URI.create(config.getTarget() + "/api/iot/telemetry/batch");
+    }
+    
+    @Override
+    public CompletableFuture<Void> send(List<TelemetryReading> batch) {
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(batch);
+        } catch (JsonProcessingException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        
+        HttpRequest request = HttpRequest.newBuilder(endpoint)
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+                .build();
+        
+        return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .thenAccept(response -> {
+                    if (response.statusCode() / 100 != 2) {
+                        throw new IllegalStateException("HTTP " + response.statusCode());
+                    }
+                });
+    }
+    
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
+
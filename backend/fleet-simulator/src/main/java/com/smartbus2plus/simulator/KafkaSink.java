@@ -0,0 +1,67 @@
+package com.smartbus2plus.simulator;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Produces readings to the ingest topic, keyed by bus id like the service producers
+ */
+public class KafkaSink implements TelemetrySink {
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final KafkaProducer<String, byte[]> producer;
+    private final String topic;
+    
+    public KafkaSink(SimulatorConfig config) {
+        Properties props = new Properties();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, config.getBootstrapServers());
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+        this.producer = new KafkaProducer<>(props);
+        this.topic = config.getTopic();
+    }
+    
+    @Override
+    public CompletableFuture<Void> send(List<TelemetryReading> batch) {
+        CompletableFuture<Void> acked = new CompletableFuture<>();
+        AtomicInteger remaining = new AtomicInteger(batch.size());
+        
+        for (TelemetryReading reading : batch) {
+            byte[] value;
+            try {
+                value = objectMapper.writeValueAsBytes(reading);
+            } catch (JsonProcessingException e) {
+                acked.completeExceptionally(e);
+                return acked;
+            }
+            
+            producer.send(new ProducerRecord<>(topic, String.valueOf(reading.getBusId()), value), (metadata, error) -> {
+                if (error != null) {
+                    acked.completeExceptionally(error);
+                } else if (remaining.decrementAndGet() == 0) {
+                    acked.complete(null);
+                }
+            });
+        }
+        return acked;
+    }
+    
+    @Override
+    public void close() {
+        producer.close();
+    }
+}
+
@@ -0,0 +1,75 @@
+package com.smartbus2plus.simulator;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Batch latency histogram with per-second interval lines and a final summary.
+ * Latencies are measured from each batch's intended send time, so stalls in the
+ * target show up as queueing delay instead of being hidden (coordinated omission).
+ */
+public class LatencyReport {
+    
+    private static final long MAX_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(5);
+    
+    private final Recorder recorder = new Recorder(MAX_TRACKABLE_NANOS, 3);
+    private final Histogram total = new Histogram(MAX_TRACKABLE_NANOS, 3);
+    private final LongAdder readingsAcked = new LongAdder();
+    private final LongAdder batchesFailed = new LongAdder();
+    private final PrintStream out;
+    private final long startNanos;
+    private Histogram interval;
+    private long lastReadings;
+    
+    public LatencyReport(PrintStream out) {
+        this.out = out;
+        this.startNanos = System.nanoTime();
+    }
+    
+    public void record(long latencyNanos, int readings, boolean success) {
+        recorder.recordValue(Math.min(latencyNanos, MAX_TRACKABLE_NANOS));
+        if (success) {
+            readingsAcked.add(readings);
+        } else {
+            batchesFailed.increment();
+        }
+    }
+    
+    public synchronized void printInterval() {
+        interval = recorder.getIntervalHistogram(interval);
+        total.add(interval);
+        
+        long readings = readingsAcked.sum();
+        double elapsed = (System.nanoTime() - startNanos) / 1e9;
+        out.printf("%7.1fs  %9d readings/s  p50 %8.2f ms  p99 %8.2f ms  max %8.2f ms  failed batches %d%n",
+                elapsed, readings - lastReadings,
+                millis(interval.getValueAtPercentile(50)),
+                millis(interval.getValueAtPercentile(99)),
+                millis(interval.getMaxValue()),
+                batchesFailed.sum());
+        lastReadings = readings;
+    }
+    
+    public synchronized void printSummary(double targetRate) {
+        printInterval();
+        double elapsed = (System.nanoTime() - startNanos) / 1e9;
+        out.println();
+        out.printf("Readings acknowledged: %d (%.0f/s achieved, %.0f/s target)%n",
+                readingsAcked.sum(), readingsAcked.sum() / elapsed, targetRate);
+        out.printf("Batches: %d, failed: %d%n", total.getTotalCount(), batchesFailed.sum());
+        out.println("Batch latency from intended send time (ms):");
+        for (double percentile : new double[] {50, 90, 99, 99.9, 99.99}) {
+            out.printf("  p%-6s %10.2f%n", percentile, millis(total.getValueAtPercentile(percentile)));
+        }
+        out.printf("  max     %10.2f%n", millis(total.getMaxValue()));
+    }
+    
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
+
@@ -0,0 +1,82 @@
+package com.smartbus2plus.simulator;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic reading source for N buses x M sensors.
+ * Each sensor follows a bounded random walk seeded from the run seed, so two runs with
+ * the same seed and sizes produce the same sequence of values.
+ */
+public class ReadingGenerator {
+    
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    
+    private static final SensorKind[] KINDS = {
+        new SensorKind("temperature", "TEMP", "°C", "cabin", 18, 28, 0.1),
+        new SensorKind("humidity", "HUM", "%", "cabin", 30, 70, 0.5),
+        new SensorKind("vibration", "VIB", "m/s²", "cabin", 0, 3, 0.2),
+        new SensorKind("noise", "NOISE", "dB", "cabin", 40, 80, 1.0),
+        new SensorKind("speed", "SPEED", "km/h", "engine", 0, 100, 3.0),
+        new SensorKind("pressure", "SENSOR", "Pa", "seat", 0, 100, 5.0)
+    };
+    
+    private final SplittableRandom random;
+    private final long firstBusId;
+    private final int buses;
+    private final int sensorsPerBus;
+    private final double[] values;
+    private final String[] sensorIds;
+    private int cursor;
+    
+    public ReadingGenerator(SimulatorConfig config) {
+        this.random = new SplittableRandom(config.getSeed());
+        this.firstBusId = config.getFirstBusId();
+        this.buses = config.getBuses();
+        this.sensorsPerBus = config.getSensorsPerBus();
+        this.values = new double[buses * sensorsPerBus];
+        this.sensorIds = new String[values.length];
+        
+        for (int i = 0; i < values.length; i++) {
+            SensorKind kind = kindOf(i);
+            long busId = firstBusId + i / sensorsPerBus;
+            values[i] = kind.min + random.nextDouble() * (kind.max - kind.min);
+            sensorIds[i] = kind.prefix + "_" + busId + "_" + (i % sensorsPerBus);
+        }
+    }
+    
+    public List<TelemetryReading> nextBatch(int size) {
+        String timestamp = LocalDateTime.now().format(TIMESTAMP_FORMAT);
+        List<TelemetryReading> batch = new ArrayList<>(size);
+        for (int n = 0; n < size; n++) {
+            int i = cursor;
+            cursor = (cursor + 1) % values.length;
+            
+            SensorKind kind = kindOf(i);
+            double next = values[i] + (random.nextDouble() * 2 - 1) * kind.step;
+            values[i] = Math.max(kind.min, Math.min(kind.max, next));
+            
+            long busId = firstBusId + i / sensorsPerBus;
+            String location = "seat".equals(kind.location) ? "seat_" + (i % sensorsPerBus) : kind.location;
+            batch.add(new TelemetryReading(busId, kind.type, sensorIds[i],
+                    Math.round(values[i] * 10000) / 10000.0, kind.unit, location, timestamp));
+        }
+        return batch;
+    }
+    
+    public int getSensorCount() {
+        return values.length;
+    }
+    
+    private SensorKind kindOf(int index) {
+        return KINDS[(index % sensorsPerBus) % KINDS.length];
+    }
+    
+    private record SensorKind(String type, String prefix, String unit, String location,
+                              double min, double max, double step) {
+    }
+}
+
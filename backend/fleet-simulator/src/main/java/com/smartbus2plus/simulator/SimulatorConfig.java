@@ -0,0 +1,111 @@
+package com.smartbus2plus.simulator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command-line options for the fleet simulator
+ */
+public class SimulatorConfig {
+    
+    public enum Mode {
+        HTTP, KAFKA
+    }
+    
+    private int buses = 100;
+    private int sensorsPerBus = 10;
+    private double rate = 1000; // readings per second across the fleet
+    private int durationSeconds = 60;
+    private long seed = 42;
+    private long firstBusId = 1;
+    private Mode mode = Mode.HTTP;
+    private String target = "http://localhost:8085";
+    private String bootstrapServers = "localhost:9092";
+    private String topic = "iot-telemetry-ingest";
+    private int batchSize = 100;
+    private int maxInFlight = 64;
+    
+    public static SimulatorConfig parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        
+        SimulatorConfig config = new SimulatorConfig();
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            String value = option.getValue();
+            switch (option.getKey()) {
+                case "buses" -> config.buses = Integer.parseInt(value);
+                case "sensors" -> config.sensorsPerBus = Integer.parseInt(value);
+                case "rate" -> config.rate = Double.parseDouble(value);
+                case "duration" -> config.durationSeconds = Integer.parseInt(value);
+                case "seed" -> config.seed = Long.parseLong(value);
+                case "first-bus-id" -> config.firstBusId = Long.parseLong(value);
+                case "mode" -> config.mode = Mode.valueOf(value.toUpperCase());
+                case "target" -> config.target = value;
+                case "bootstrap-servers" -> config.bootstrapServers = value;
+                case "topic" -> config.topic = value;
+                case "batch-size" -> config.batchSize = Integer.parseInt(value);
+                case "max-in-flight" -> config.maxInFlight = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Unknown option: --" + option.getKey());
+            }
+        }
+        
+        if (config.buses <= 0 || config.sensorsPerBus <= 0 || config.rate <= 0
+                || config.durationSeconds <= 0 || config.batchSize <= 0 || config.maxInFlight <= 0) {
+            throw new IllegalArgumentException("buses, sensors, rate, duration, batch-size and max-in-flight must be positive");
+        }
+        return config;
+    }
+    
+    public static String usage() {
+        return String.join("\n",
+            "Usage: java -jar fleet-simulator.jar [options]",
+            "  --buses=N              buses to emulate (default 100)",
+            "  --sensors=M            sensors per bus (default 10)",
+            "  --rate=R               readings per second across the fleet (default 1000)",
+            "  --duration=S           run time in seconds (default 60)",
+            "  --seed=X               random seed; same seed gives the same readings (default 42)",
+            "  --first-bus-id=ID      id of the first emulated bus (default 1)",
+            "  --mode=http|kafka      ingestion path (default http)",
+            "  --target=URL           iot-telemetry-service base URL for http mode (default http://localhost:8085)",
+            "  --bootstrap-servers=H  Kafka bootstrap servers for kafka mode (default localhost:9092)",
+            "  --topic=T              Kafka topic for kafka mode (default iot-telemetry-ingest)",
+            "  --batch-size=B         readings per HTTP request / Kafka batch (default 100)",
+            "  --max-in-flight=K      concurrent outstanding batches (default 64)");
+    }
+    
+    // Getters
+    public int getBuses() { return buses; }
+    
+    public int getSensorsPerBus() { return sensorsPerBus; }
+    
+    public double getRate() { return rate; }
+    
+    public int getDurationSeconds() { return durationSeconds; }
+    
+    public long getSeed() { return seed; }
+    
+    public long getFirstBusId() { return firstBusId; }
+    
+    public Mode getMode() { return mode; }
+    
+    public String getTarget() { return target; }
+    
+    public String getBootstrapServers() { return bootstrapServers; }
+    
+    public String getTopic() { return topic; }
+    
+    public int getBatchSize() { return batchSize; }
+    
+    public int getMaxInFlight() { return maxInFlight; }
+}
+
@@ -0,0 +1,42 @@
+package com.smartbus2plus.simulator;
+
+/**
+ * One sensor reading, serialized in the shape of the iot-telemetry-service TelemetryData DTO
+ */
+public class TelemetryReading {
+    
+    private final long busId;
+    private final String sensorType;
+    private final String sensorId;
+    private final double value;
+    private final String unit;
+    private final String location;
+    private final String timestamp; // yyyy-MM-dd HH:mm:ss, as expected by the service
+    
+    public TelemetryReading(long busId, String sensorType, String sensorId, double value,
+                            String unit, String location, String timestamp) {
+        this.busId = busId;
+        this.sensorType = sensorType;
+        this.sensorId = sensorId;
+        this.value = value;
+        this.unit = unit;
+        this.location = location;
+        this.timestamp = timestamp;
+    }
+    
+    // Getters
+    public long getBusId() { return busId; }
+    
+    public String getSensorType() { return sensorType; }
+    
+    public String getSensorId() { return sensorId; }
+    
+    public double getValue() { return value; }
+    
+    public String getUnit() { return unit; }
+    
+    public String getLocation() { return location; }
+    
+    public String getTimestamp() { return timestamp; }
+}
+
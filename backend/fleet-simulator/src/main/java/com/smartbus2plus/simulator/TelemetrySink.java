@@ -0,0 +1,16 @@
+package com.smartbus2plus.simulator;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Ingestion path the simulator drives; completes once the batch is acknowledged
+ */
+public interface TelemetrySink extends AutoCloseable {
+    
+    CompletableFuture<Void> send(List<TelemetryReading> batch);
+    
+    @Override
+    void close();
+}
+
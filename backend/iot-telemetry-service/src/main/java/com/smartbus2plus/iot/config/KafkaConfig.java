@@ -1,13 +1,24 @@
 package com.smartbus2plus.iot.config;
 
+import com.smartbus2plus.iot.dto.IoTDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.MicrometerProducerListener;
 import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
 import org.springframework.kafka.support.serializer.JsonSerializer;
 
 import java.util.HashMap;
@@ -22,24 +33,145 @@ public class KafkaConfig {
     @Value("${spring.kafka.bootstrap-servers:localhost:9092}")
     private String bootstrapServers;
     
+    @Value("${iot.kafka.producer.profile:balanced}") // low-latency, balanced or high-throughput
+    private String producerProfile;
+    
+    @Value("${iot.kafka.producer.linger-ms:#{null}}")
+    private Integer lingerMs;
+    
+    @Value("${iot.kafka.producer.batch-size:#{null}}")
+    private Integer batchSize;
+    
+    @Value("${iot.kafka.producer.compression-type:#{null}}")
+    private String compressionType;
+    
+    @Value("${iot.kafka.producer.acks:#{null}}")
+    private String acks;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${iot.ingest.concurrency:3}")
+    private int ingestConcurrency;
+    
+    @Value("${iot.ingest.max-poll-records:1000}")
+    private int ingestMaxPollRecords;
+    
+    @Value("${iot.anomaly.concurrency:3}") // consumer threads, up to the partition count
+    private int anomalyConcurrency;
+    
+    @Value("${iot.anomaly.max-poll-records:500}")
+    private int anomalyMaxPollRecords;
+    
     @Bean
     public ProducerFactory<String, Object> producerFactory() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
         configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        configProps.put(ProducerConfig.ACKS_CONFIG, "all");
         configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
-        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, 16384);
-        configProps.put(ProducerConfig.LINGER_MS_CONFIG, 1);
         configProps.put(ProducerConfig.BUFFER_MEMORY_CONFIG, 33554432);
+        applyProducerProfile(configProps);
         
-        return new DefaultKafkaProducerFactory<>(configProps);
+        DefaultKafkaProducerFactory<String, Object> factory = new DefaultKafkaProducerFactory<>(configProps);
+        // Publishes kafka.producer.* client metrics (record rate, batch size, latency) to /actuator/metrics
+        factory.addListener(new MicrometerProducerListener<>(meterRegistry));
+        return factory;
+    }
+    
+    private void applyProducerProfile(Map<String, Object> configProps) {
+        switch (producerProfile) {
+            case "low-latency" -> {
+                // Send immediately, wait for the leader only
+                configProps.put(ProducerConfig.ACKS_CONFIG, "1");
+                configProps.put(ProducerConfig.LINGER_MS_CONFIG, 0);
+                configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, 16384);
+                configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "none");
+            }
+            case "high-throughput" -> {
+                // Let batches fill up and compress them; idempotence keeps per-bus ordering across retries
+                configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+                configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+                configProps.put(ProducerConfig.LINGER_MS_CONFIG, 20);
+                configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, 131072);
+                configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+            }
+            case "balanced" -> {
+                configProps.put(ProducerConfig.ACKS_CONFIG, "all");
+                configProps.put(ProducerConfig.LINGER_MS_CONFIG, 1);
+                configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, 16384);
+            }
+            default -> throw new IllegalArgumentException("Unknown Kafka producer profile: " + producerProfile);
+        }
+        
+        // Explicit settings override the profile
+        if (lingerMs != null) {
+            configProps.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        }
+        if (batchSize != null) {
+            configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        }
+        if (compressionType != null) {
+            configProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, compressionType);
+        }
+        if (acks != null) {
+            configProps.put(ProducerConfig.ACKS_CONFIG, acks);
+        }
     }
     
     @Bean
     public KafkaTemplate<String, Object> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
+    
+    @Bean
+    public ConsumerFactory<String, IoTDto.BusEnvironmentData> telemetryConsumerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        configProps.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
+        configProps.put(JsonDeserializer.TRUSTED_PACKAGES, "com.smartbus2plus.iot.dto");
+        configProps.put(JsonDeserializer.VALUE_DEFAULT_TYPE, IoTDto.BusEnvironmentData.class);
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, anomalyMaxPollRecords);
+        configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        
+        return new DefaultKafkaConsumerFactory<>(configProps);
+    }
+    
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, IoTDto.BusEnvironmentData> telemetryBatchListenerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, IoTDto.BusEnvironmentData> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(telemetryConsumerFactory());
+        factory.setBatchListener(true);
+        factory.setConcurrency(anomalyConcurrency);
+        return factory;
+    }
+    
+    @Bean
+    public ConsumerFactory<String, IoTDto.TelemetryData> ingestConsumerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        configProps.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
+        // External producers (readers, fleet-simulator) send plain JSON without type headers
+        configProps.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
+        configProps.put(JsonDeserializer.VALUE_DEFAULT_TYPE, IoTDto.TelemetryData.class);
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, ingestMaxPollRecords);
+        
+        return new DefaultKafkaConsumerFactory<>(configProps);
+    }
+    
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, IoTDto.TelemetryData> ingestBatchListenerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, IoTDto.TelemetryData> factory =
+            new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(ingestConsumerFactory());
+        factory.setBatchListener(true);
+        factory.setConcurrency(ingestConcurrency);
+        return factory;
+    }
 }
 
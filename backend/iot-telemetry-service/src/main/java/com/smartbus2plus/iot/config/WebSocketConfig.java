@@ -1,22 +1,32 @@
 package com.smartbus2plus.iot.config;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
-import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
 /**
- * WebSocket configuration for IoT real-time data streaming
+ * WebSocket configuration for IoT real-time data streaming; the broker itself is set up
+ * by DropOnOverflowBrokerConfig
  */
 @Configuration
-@EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
     
+    @Autowired
+    private BrokerRelayProperties brokerRelay;
+    
+    @Value("${iot.websocket.send-time-limit-ms:5000}")
+    private int sendTimeLimit;
+    
+    @Value("${iot.websocket.send-buffer-size-limit:262144}")
+    private int sendBufferSizeLimit;
+    
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        // Enable simple broker for topics
-        config.enableSimpleBroker("/topic");
+        brokerRelay.configure(config);
         // Set application destination prefix
         config.setApplicationDestinationPrefixes("/app");
     }
@@ -36,5 +46,12 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
     }
+    
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        // Per-session send limits; DropOnOverflowBrokerConfig makes overflow drop frames
+        registration.setSendTimeLimit(sendTimeLimit)
+                .setSendBufferSizeLimit(sendBufferSizeLimit);
+    }
 }
 
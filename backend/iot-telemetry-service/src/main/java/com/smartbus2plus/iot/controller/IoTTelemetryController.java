@@ -1,7 +1,9 @@
 package com.smartbus2plus.iot.controller;
 
 import com.smartbus2plus.iot.dto.IoTDto;
+import com.smartbus2plus.iot.model.IncidentReport;
 import com.smartbus2plus.iot.model.IoTTelemetry;
+import com.smartbus2plus.iot.service.AnomalyDetectionService;
 import com.smartbus2plus.iot.service.IoTTelemetryService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -22,6 +24,9 @@ public class IoTTelemetryController {
     @Autowired
     private IoTTelemetryService telemetryService;
     
+    @Autowired
+    private AnomalyDetectionService anomalyDetectionService;
+    
     @PostMapping("/telemetry")
     @Operation(summary = "Send telemetry data", description = "Send IoT sensor data to the system")
     public ResponseEntity<IoTTelemetry> sendTelemetryData(@RequestBody IoTDto.TelemetryData telemetryData) {
@@ -36,6 +41,13 @@ public class IoTTelemetryController {
         return ResponseEntity.ok(saved);
     }
     
+    @PostMapping("/telemetry/batch")
+    @Operation(summary = "Send telemetry batch", description = "Send many IoT sensor readings in a single request")
+    public ResponseEntity<Integer> sendTelemetryBatch(@RequestBody List<IoTDto.TelemetryData> batch) {
+        List<IoTTelemetry> saved = telemetryService.saveTelemetryBatch(batch);
+        return ResponseEntity.ok(saved.size());
+    }
+    
     @GetMapping("/bus/{busId}/telemetry")
     @Operation(summary = "Get telemetry data by bus", description = "Retrieve all telemetry data for a specific bus")
     public ResponseEntity<List<IoTTelemetry>> getTelemetryDataByBus(@PathVariable Long busId) {
@@ -68,6 +80,20 @@ public class IoTTelemetryController {
         return ResponseEntity.ok(environment);
     }
     
+    @GetMapping("/bus/{busId}/incidents")
+    @Operation(summary = "Get incidents by bus", description = "Retrieve incidents raised by telemetry anomaly detection for a specific bus")
+    public ResponseEntity<List<IncidentReport>> getIncidentsByBus(@PathVariable Long busId) {
+        List<IncidentReport> incidents = anomalyDetectionService.getIncidentsByBus(busId);
+        return ResponseEntity.ok(incidents);
+    }
+    
+    @GetMapping("/incidents/open")
+    @Operation(summary = "Get open incidents", description = "Retrieve all unresolved incidents across the fleet")
+    public ResponseEntity<List<IncidentReport>> getOpenIncidents() {
+        List<IncidentReport> incidents = anomalyDetectionService.getOpenIncidents();
+        return ResponseEntity.ok(incidents);
+    }
+    
     @GetMapping("/health")
     @Operation(summary = "Health check", description = "Check IoT service health")
     public ResponseEntity<String> healthCheck() {
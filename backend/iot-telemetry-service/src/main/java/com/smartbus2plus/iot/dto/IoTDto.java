@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonFormat;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * DTOs for IoT telemetry data
@@ -166,5 +167,39 @@ public class IoTDto {
         public LocalDateTime getTimestamp() { return timestamp; }
         public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
     }
+    
+    public static class SeatOccupancyDelta {
+        private Long busId;
+        private long sequence;
+        private boolean snapshot; // true when seats holds the full bus state rather than only changes
+        private List<SeatOccupancyData> seats;
+        private LocalDateTime timestamp;
+        
+        public SeatOccupancyDelta() {}
+        
+        public SeatOccupancyDelta(Long busId, long sequence, boolean snapshot, List<SeatOccupancyData> seats) {
+            this.busId = busId;
+            this.sequence = sequence;
+            this.snapshot = snapshot;
+            this.seats = seats;
+            this.timestamp = LocalDateTime.now();
+        }
+        
+        // Getters and Setters
+        public Long getBusId() { return busId; }
+        public void setBusId(Long busId) { this.busId = busId; }
+        
+        public long getSequence() { return sequence; }
+        public void setSequence(long sequence) { this.sequence = sequence; }
+        
+        public boolean isSnapshot() { return snapshot; }
+        public void setSnapshot(boolean snapshot) { this.snapshot = snapshot; }
+        
+        public List<SeatOccupancyData> getSeats() { return seats; }
+        public void setSeats(List<SeatOccupancyData> seats) { this.seats = seats; }
+        
+        public LocalDateTime getTimestamp() { return timestamp; }
+        public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
+    }
 }
 
@@ -0,0 +1,92 @@
+package com.smartbus2plus.iot.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Incident report entity raised by streaming telemetry anomaly detection
+ */
+@Entity
+@Table(name = "incident_reports")
+public class IncidentReport {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @NotNull
+    @Column(name = "bus_id")
+    private Long busId;
+    
+    @NotBlank
+    @Column(name = "incident_type")
+    private String incidentType; // sudden_braking, abnormal_acceleration, abnormal_vibration, temperature_anomaly
+    
+    @Enumerated(EnumType.STRING)
+    private Severity severity;
+    
+    private String description;
+    
+    @Column(name = "sensor_data", columnDefinition = "jsonb")
+    private String sensorData; // Readings that triggered the incident
+    
+    @Column(name = "ai_confidence", precision = 3, scale = 2)
+    private BigDecimal aiConfidence;
+    
+    @Column(name = "is_resolved")
+    private Boolean isResolved = false;
+    
+    @Column(name = "reported_at")
+    private LocalDateTime reportedAt;
+    
+    public enum Severity {
+        LOW, MEDIUM, HIGH, CRITICAL
+    }
+    
+    // Constructors
+    public IncidentReport() {}
+    
+    public IncidentReport(Long busId, String incidentType, Severity severity, String description,
+                          String sensorData, BigDecimal aiConfidence, LocalDateTime reportedAt) {
+        this.busId = busId;
+        this.incidentType = incidentType;
+        this.severity = severity;
+        this.description = description;
+        this.sensorData = sensorData;
+        this.aiConfidence = aiConfidence;
+        this.reportedAt = reportedAt;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Long getBusId() { return busId; }
+    public void setBusId(Long busId) { this.busId = busId; }
+    
+    public String getIncidentType() { return incidentType; }
+    public void setIncidentType(String incidentType) { this.incidentType = incidentType; }
+    
+    public Severity getSeverity() { return severity; }
+    public void setSeverity(Severity severity) { this.severity = severity; }
+    
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+    
+    public String getSensorData() { return sensorData; }
+    public void setSensorData(String sensorData) { this.sensorData = sensorData; }
+    
+    public BigDecimal getAiConfidence() { return aiConfidence; }
+    public void setAiConfidence(BigDecimal aiConfidence) { this.aiConfidence = aiConfidence; }
+    
+    public Boolean getIsResolved() { return isResolved; }
+    public void setIsResolved(Boolean isResolved) { this.isResolved = isResolved; }
+    
+    public LocalDateTime getReportedAt() { return reportedAt; }
+    public void setReportedAt(LocalDateTime reportedAt) { this.reportedAt = reportedAt; }
+}
+
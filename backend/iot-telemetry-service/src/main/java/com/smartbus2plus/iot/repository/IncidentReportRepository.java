@@ -0,0 +1,19 @@
+package com.smartbus2plus.iot.repository;
+
+import com.smartbus2plus.iot.model.IncidentReport;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repository for incident reports
+ */
+@Repository
+public interface IncidentReportRepository extends JpaRepository<IncidentReport, Long> {
+    
+    List<IncidentReport> findByBusIdOrderByReportedAtDesc(Long busId);
+    
+    List<IncidentReport> findByIsResolvedFalseOrderByReportedAtDesc();
+}
+
@@ -0,0 +1,188 @@
+package com.smartbus2plus.iot.service;
+
+import com.smartbus2plus.iot.dto.IoTDto;
+import com.smartbus2plus.iot.model.IncidentReport;
+import com.smartbus2plus.iot.repository.IncidentReportRepository;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Streaming anomaly detection over the iot-telemetry topic.
+ * Keeps constant-size rolling statistics (EWMA mean and variance) per bus and raises
+ * incident reports when a reading deviates by more than the configured z-score.
+ */
+@Service
+public class AnomalyDetectionService {
+    
+    @Autowired
+    private IncidentReportRepository incidentReportRepository;
+    
+    @Value("${iot.anomaly.alpha:0.05}") // EWMA smoothing factor
+    private double alpha;
+    
+    @Value("${iot.anomaly.z-threshold:3.5}")
+    private double zThreshold;
+    
+    @Value("${iot.anomaly.warmup-samples:20}")
+    private int warmupSamples;
+    
+    @Value("${iot.anomaly.braking-threshold:3.0}") // m/s² deceleration
+    private double brakingThreshold;
+    
+    @Value("${iot.anomaly.acceleration-threshold:2.5}") // m/s²
+    private double accelerationThreshold;
+    
+    private final Map<Long, BusStatistics> statistics = new ConcurrentHashMap<>();
+    
+    @KafkaListener(topics = "iot-telemetry", groupId = "iot-anomaly-detector",
+                   containerFactory = "telemetryBatchListenerFactory")
+    @Transactional
+    public void onTelemetryBatch(List<ConsumerRecord<String, IoTDto.BusEnvironmentData>> records) {
+        List<IncidentReport> incidents = new ArrayList<>();
+        for (ConsumerRecord<String, IoTDto.BusEnvironmentData> record : records) {
+            IoTDto.BusEnvironmentData data = record.value();
+            if (data != null && data.getBusId() != null) {
+                detect(data, incidents);
+            }
+        }
+        
+        // One write per consumed batch rather than per reading
+        if (!incidents.isEmpty()) {
+            incidentReportRepository.saveAll(incidents);
+        }
+    }
+    
+    public List<IncidentReport> getIncidentsByBus(Long busId) {
+        return incidentReportRepository.findByBusIdOrderByReportedAtDesc(busId);
+    }
+    
+    public List<IncidentReport> getOpenIncidents() {
+        return incidentReportRepository.findByIsResolvedFalseOrderByReportedAtDesc();
+    }
+    
+    private void detect(IoTDto.BusEnvironmentData data, List<IncidentReport> incidents) {
+        BusStatistics stats = statistics.computeIfAbsent(data.getBusId(), id -> new BusStatistics());
+        LocalDateTime timestamp = data.getTimestamp() != null ? data.getTimestamp() : LocalDateTime.now();
+        
+        // Readings for one bus share a partition once keyed, but guard against unkeyed producers
+        synchronized (stats) {
+            if (data.getSpeed() != null) {
+                double speed = data.getSpeed().doubleValue();
+                if (stats.lastTimestamp != null) {
+                    double seconds = Duration.between(stats.lastTimestamp, timestamp).toMillis() / 1000.0;
+                    if (seconds > 0) {
+                        double acceleration = (speed - stats.lastSpeed) / 3.6 / seconds; // km/h -> m/s²
+                        double z = stats.acceleration.score(acceleration);
+                        if (stats.acceleration.count >= warmupSamples && Math.abs(z) >= zThreshold) {
+                            if (acceleration <= -brakingThreshold) {
+                                incidents.add(incident(data, "sudden_braking", z, timestamp,
+                                        String.format("Deceleration of %.2f m/s²", -acceleration)));
+                            } else if (acceleration >= accelerationThreshold) {
+                                incidents.add(incident(data, "abnormal_acceleration", z, timestamp,
+                                        String.format("Acceleration of %.2f m/s²", acceleration)));
+                            }
+                        }
+                        stats.acceleration.update(acceleration, alpha);
+                    }
+                }
+                stats.lastSpeed = speed;
+                stats.lastTimestamp = timestamp;
+            }
+            
+            if (data.getVibration() != null) {
+                double vibration = data.getVibration().doubleValue();
+                double z = stats.vibration.score(vibration);
+                if (stats.vibration.count >= warmupSamples && z >= zThreshold) {
+                    incidents.add(incident(data, "abnormal_vibration", z, timestamp,
+                            String.format("Vibration of %.2f m/s² against a mean of %.2f", vibration, stats.vibration.mean)));
+                }
+                stats.vibration.update(vibration, alpha);
+            }
+            
+            if (data.getTemperature() != null) {
+                double temperature = data.getTemperature().doubleValue();
+                double z = stats.temperature.score(temperature);
+                if (stats.temperature.count >= warmupSamples && Math.abs(z) >= zThreshold) {
+                    incidents.add(incident(data, "temperature_anomaly", z, timestamp,
+                            String.format("Cabin temperature of %.1f°C against a mean of %.1f°C", temperature, stats.temperature.mean)));
+                }
+                stats.temperature.update(temperature, alpha);
+            }
+        }
+    }
+    
+    private IncidentReport incident(IoTDto.BusEnvironmentData data, String type, double z,
+                                    LocalDateTime timestamp, String description) {
+        double magnitude = Math.abs(z);
+        IncidentReport.Severity severity;
+        if (magnitude >= 6) {
+            severity = IncidentReport.Severity.CRITICAL;
+        } else if (magnitude >= 5) {
+            severity = IncidentReport.Severity.HIGH;
+        } else if (magnitude >= 4) {
+            severity = IncidentReport.Severity.MEDIUM;
+        } else {
+            severity = IncidentReport.Severity.LOW;
+        }
+        
+        // Chebyshev bound: at most 1/z² of normal readings lie this far from the mean
+        BigDecimal confidence = BigDecimal.valueOf(Math.min(0.99, 1 - 1 / (magnitude * magnitude)))
+                .setScale(2, RoundingMode.HALF_UP);
+        
+        String sensorData = String.format(Locale.ROOT,
+                "{\"speed\": %s, \"vibration\": %s, \"temperature\": %s, \"zScore\": %.2f}",
+                data.getSpeed(), data.getVibration(), data.getTemperature(), z);
+        
+        return new IncidentReport(data.getBusId(), type, severity, description, sensorData, confidence, timestamp);
+    }
+    
+    private static final class BusStatistics {
+        private final Ewma acceleration = new Ewma();
+        private final Ewma vibration = new Ewma();
+        private final Ewma temperature = new Ewma();
+        private double lastSpeed;
+        private LocalDateTime lastTimestamp;
+    }
+    
+    /**
+     * Exponentially weighted mean and variance in constant memory
+     */
+    private static final class Ewma {
+        private double mean;
+        private double variance;
+        private long count;
+        
+        double score(double value) {
+            if (count < 2 || variance <= 0) {
+                return 0;
+            }
+            return (value - mean) / Math.sqrt(variance);
+        }
+        
+        void update(double value, double alpha) {
+            if (count++ == 0) {
+                mean = value;
+                return;
+            }
+            double diff = value - mean;
+            double increment = alpha * diff;
+            mean += increment;
+            variance = (1 - alpha) * (variance + diff * increment);
+        }
+    }
+}
+
@@ -3,7 +3,12 @@ package com.smartbus2plus.iot.service;
 import com.smartbus2plus.iot.dto.IoTDto;
 import com.smartbus2plus.iot.model.IoTTelemetry;
 import com.smartbus2plus.iot.repository.IoTTelemetryRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -11,6 +16,7 @@ import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
@@ -29,19 +35,45 @@ public class IoTTelemetryService {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
     
+    @Autowired
+    private SeatOccupancyBroadcaster seatOccupancyBroadcaster;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${iot.mock.enabled:true}") // disable when driving load with the fleet-simulator
+    private boolean mockEnabled;
+    
     private final Random random = new Random();
     
+    private Counter skippedReadings;
+    
+    @PostConstruct
+    public void init() {
+        skippedReadings = Counter.builder("iot.ingest.skipped")
+                .description("Ingest records that could not be decoded or carry no bus ID")
+                .register(meterRegistry);
+    }
+    
     // Mock sensor data generation for demo purposes
     @Scheduled(fixedRate = 5000) // Every 5 seconds
     public void generateMockSensorData() {
-        // Generate data for buses 1-4
+        if (!mockEnabled) {
+            return;
+        }
+        
+        // Generate data for buses 1-4; readings are stored by the ingest consumer, not on this thread
+        List<IoTDto.TelemetryData> readings = new ArrayList<>();
         for (Long busId = 1L; busId <= 4L; busId++) {
-            generateBusEnvironmentData(busId);
-            generateSeatOccupancyData(busId);
+            generateBusEnvironmentData(busId, readings);
+            generateSeatOccupancyData(busId, readings);
+        }
+        for (IoTDto.TelemetryData reading : readings) {
+            kafkaTemplate.send("iot-telemetry-ingest", String.valueOf(reading.getBusId()), reading);
         }
     }
     
-    private void generateBusEnvironmentData(Long busId) {
+    private void generateBusEnvironmentData(Long busId, List<IoTDto.TelemetryData> readings) {
         // Temperature: 18-28°C
         BigDecimal temperature = BigDecimal.valueOf(18 + random.nextDouble() * 10);
         
@@ -61,22 +93,22 @@ public class IoTTelemetryService {
             busId, temperature, humidity, vibration, noiseLevel, speed
         );
         
-        // Save to database
-        saveTelemetryData(busId, "temperature", "TEMP_" + busId, temperature, "°C", "cabin");
-        saveTelemetryData(busId, "humidity", "HUM_" + busId, humidity, "%", "cabin");
-        saveTelemetryData(busId, "vibration", "VIB_" + busId, vibration, "m/s²", "cabin");
-        saveTelemetryData(busId, "noise", "NOISE_" + busId, noiseLevel, "dB", "cabin");
-        saveTelemetryData(busId, "speed", "SPEED_" + busId, speed, "km/h", "engine");
+        // Queue for the ingest topic
+        readings.add(new IoTDto.TelemetryData(busId, "temperature", "TEMP_" + busId, temperature, "°C", "cabin"));
+        readings.add(new IoTDto.TelemetryData(busId, "humidity", "HUM_" + busId, humidity, "%", "cabin"));
+        readings.add(new IoTDto.TelemetryData(busId, "vibration", "VIB_" + busId, vibration, "m/s²", "cabin"));
+        readings.add(new IoTDto.TelemetryData(busId, "noise", "NOISE_" + busId, noiseLevel, "dB", "cabin"));
+        readings.add(new IoTDto.TelemetryData(busId, "speed", "SPEED_" + busId, speed, "km/h", "engine"));
         
-        // Send to Kafka
-        kafkaTemplate.send("iot-telemetry", envData);
+        // Send to Kafka, keyed by bus so each bus stays on one partition in order
+        kafkaTemplate.send("iot-telemetry", String.valueOf(busId), envData);
         
         // Send to WebSocket clients
         messagingTemplate.convertAndSend("/topic/iot/bus/" + busId, envData);
         messagingTemplate.convertAndSend("/topic/iot/environment", envData);
     }
     
-    private void generateSeatOccupancyData(Long busId) {
+    private void generateSeatOccupancyData(Long busId, List<IoTDto.TelemetryData> readings) {
         // Generate occupancy data for seats 1A-12D (48 seats)
         for (int row = 1; row <= 12; row++) {
             for (char col = 'A'; col <= 'D'; col++) {
@@ -90,21 +122,53 @@ public class IoTTelemetryService {
                     busId, seatNumber, occupied, pressureValue, "SENSOR_" + busId + "_" + seatNumber
                 );
                 
-                // Save to database
-                saveTelemetryData(busId, "pressure", "SENSOR_" + busId + "_" + seatNumber, 
-                                pressureValue, "Pa", seatNumber);
+                // Queue for the ingest topic
+                readings.add(new IoTDto.TelemetryData(busId, "pressure", "SENSOR_" + busId + "_" + seatNumber, 
+                                pressureValue, "Pa", seatNumber));
                 
-                // Send to WebSocket clients
-                messagingTemplate.convertAndSend("/topic/iot/seats/" + busId, occupancyData);
+                // Coalesced into one delta frame per bus by the broadcaster
+                seatOccupancyBroadcaster.update(occupancyData);
             }
         }
     }
     
     public IoTTelemetry saveTelemetryData(Long busId, String sensorType, String sensorId, 
                                         BigDecimal value, String unit, String location) {
+        return telemetryRepository.save(newTelemetry(busId, sensorType, sensorId, value, unit, location));
+    }
+    
+    /**
+     * Stores a batch in one transaction. IDs are IDENTITY columns, so Hibernate still sends
+     * one INSERT per row; the saving is the single commit, not JDBC batching.
+     */
+    public List<IoTTelemetry> saveTelemetryBatch(List<IoTDto.TelemetryData> batch) {
+        List<IoTTelemetry> readings = new ArrayList<>(batch.size());
+        for (IoTDto.TelemetryData data : batch) {
+            // ErrorHandlingDeserializer hands over null for records it could not decode
+            if (data == null || data.getBusId() == null) {
+                skippedReadings.increment();
+                continue;
+            }
+            IoTTelemetry telemetry = new IoTTelemetry(data.getBusId(), data.getSensorType(), data.getSensorId(),
+                                                      data.getValue(), data.getUnit(), data.getLocation());
+            telemetry.setMetadata(data.getMetadata());
+            telemetry.setTimestamp(data.getTimestamp() != null ? data.getTimestamp() : LocalDateTime.now());
+            readings.add(telemetry);
+        }
+        return telemetryRepository.saveAll(readings);
+    }
+    
+    @KafkaListener(topics = "iot-telemetry-ingest", groupId = "iot-telemetry-ingest",
+                   containerFactory = "ingestBatchListenerFactory")
+    public void onIngestBatch(List<IoTDto.TelemetryData> batch) {
+        saveTelemetryBatch(batch);
+    }
+    
+    private IoTTelemetry newTelemetry(Long busId, String sensorType, String sensorId, 
+                                      BigDecimal value, String unit, String location) {
         IoTTelemetry telemetry = new IoTTelemetry(busId, sensorType, sensorId, value, unit, location);
         telemetry.setTimestamp(LocalDateTime.now());
-        return telemetryRepository.save(telemetry);
+        return telemetry;
     }
     
     public List<IoTTelemetry> getTelemetryDataByBus(Long busId) {
@@ -0,0 +1,112 @@
+package com.smartbus2plus.iot.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartbus2plus.iot.dto.IoTDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Coalesces per-seat occupancy readings into one WebSocket frame per bus per tick.
+ * Only seats whose occupancy changed since the last frame are sent; a full snapshot
+ * is sent periodically so clients that dropped a frame can resynchronise.
+ */
+@Service
+public class SeatOccupancyBroadcaster {
+    
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${iot.websocket.seats.snapshot-every:30}") // ticks between full snapshots
+    private int snapshotEvery;
+    
+    private final Map<Long, BusSeatState> buses = new ConcurrentHashMap<>();
+    
+    public void update(IoTDto.SeatOccupancyData occupancyData) {
+        buses.computeIfAbsent(occupancyData.getBusId(), BusSeatState::new).update(occupancyData);
+    }
+    
+    @Scheduled(fixedRateString = "${iot.websocket.seats.flush-interval-ms:1000}")
+    public void flush() {
+        for (BusSeatState state : buses.values()) {
+            IoTDto.SeatOccupancyDelta delta = state.drain(snapshotEvery);
+            if (delta != null) {
+                publish("/topic/iot/seats/" + delta.getBusId(), delta);
+            }
+        }
+    }
+    
+    private void publish(String destination, Object payload) {
+        // Serialize once; the broker reuses the same byte[] for every subscriber
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(payload);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to encode seat occupancy frame for " + destination, e);
+        }
+        
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setLeaveMutable(true);
+        messagingTemplate.send(destination, MessageBuilder.createMessage(json, accessor.getMessageHeaders()));
+    }
+    
+    private static final class BusSeatState {
+        private final Long busId;
+        private final Map<String, IoTDto.SeatOccupancyData> published = new HashMap<>();
+        private final Map<String, IoTDto.SeatOccupancyData> pending = new LinkedHashMap<>();
+        private long sequence;
+        private int ticksSinceSnapshot = Integer.MAX_VALUE;
+        
+        BusSeatState(Long busId) {
+            this.busId = busId;
+        }
+        
+        synchronized void update(IoTDto.SeatOccupancyData occupancyData) {
+            IoTDto.SeatOccupancyData last = published.get(occupancyData.getSeatNumber());
+            if (last != null && last.isOccupied() == occupancyData.isOccupied()) {
+                // Back to the published state within the tick: nothing to send for this seat
+                pending.remove(occupancyData.getSeatNumber());
+                return;
+            }
+            pending.put(occupancyData.getSeatNumber(), occupancyData);
+        }
+        
+        synchronized IoTDto.SeatOccupancyDelta drain(int snapshotEvery) {
+            if (ticksSinceSnapshot < Integer.MAX_VALUE) {
+                ticksSinceSnapshot++;
+            }
+            boolean snapshot = ticksSinceSnapshot >= snapshotEvery;
+            if (pending.isEmpty() && (!snapshot || published.isEmpty())) {
+                return null;
+            }
+            
+            List<IoTDto.SeatOccupancyData> changed = new ArrayList<>(pending.values());
+            published.putAll(pending);
+            pending.clear();
+            
+            if (snapshot) {
+                ticksSinceSnapshot = 0;
+                return new IoTDto.SeatOccupancyDelta(busId, ++sequence, true, new ArrayList<>(published.values()));
+            }
+            return new IoTDto.SeatOccupancyDelta(busId, ++sequence, false, changed);
+        }
+    }
+}
+
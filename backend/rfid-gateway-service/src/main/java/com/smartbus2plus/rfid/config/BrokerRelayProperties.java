@@ -0,0 +1,56 @@
+package com.smartbus2plus.rfid.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Shared STOMP broker that /topic messages are relayed through when enabled
+ */
+@Component
+@ConfigurationProperties(prefix = "websocket.broker.relay")
+public class BrokerRelayProperties {
+    
+    private boolean enabled = false;
+    
+    private String host = "localhost";
+    
+    private int port = 61613;
+    
+    private String login = "guest";
+    
+    private String passcode = "guest";
+    
+    public void configure(MessageBrokerRegistry config) {
+        if (enabled) {
+            // Relay to a shared STOMP broker so any node can publish and serve subscribers
+            config.enableStompBrokerRelay("/topic")
+                    .setRelayHost(host)
+                    .setRelayPort(port)
+                    .setClientLogin(login)
+                    .setClientPasscode(passcode)
+                    .setSystemLogin(login)
+                    .setSystemPasscode(passcode);
+        } else {
+            // Enable simple broker for topics
+            config.enableSimpleBroker("/topic");
+        }
+    }
+    
+    // Getters and Setters
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+    
+    public String getHost() { return host; }
+    public void setHost(String host) { this.host = host; }
+    
+    public int getPort() { return port; }
+    public void setPort(int port) { this.port = port; }
+    
+    public String getLogin() { return login; }
+    public void setLogin(String login) { this.login = login; }
+    
+    public String getPasscode() { return passcode; }
+    public void setPasscode(String passcode) { this.passcode = passcode; }
+}
+
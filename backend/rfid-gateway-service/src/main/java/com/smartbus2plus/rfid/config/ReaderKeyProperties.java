@@ -0,0 +1,22 @@
+package com.smartbus2plus.rfid.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-reader secrets (Base64) that binary reader frames are signed with, keyed by reader ID
+ */
+@Component
+@ConfigurationProperties(prefix = "rfid.reader-protocol")
+public class ReaderKeyProperties {
+    
+    private Map<String, String> keys = new HashMap<>();
+    
+    // Getters and Setters
+    public Map<String, String> getKeys() { return keys; }
+    public void setKeys(Map<String, String> keys) { this.keys = keys; }
+}
+
@@ -0,0 +1,32 @@
+package com.smartbus2plus.rfid.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * HTTP client configuration for calls to other SmartBus2+ services
+ */
+@Configuration
+public class RestClientConfig {
+    
+    @Value("${rfid.http.connect-timeout-ms:2000}")
+    private int connectTimeoutMs;
+    
+    @Value("${rfid.http.read-timeout-ms:10000}")
+    private int readTimeoutMs;
+    
+    @Bean
+    @LoadBalanced // Resolves service names such as booking-service through Eureka
+    public RestTemplate restTemplate() {
+        // Callers run on scheduler threads, so a stalled peer must not hold them indefinitely
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeoutMs);
+        requestFactory.setReadTimeout(readTimeoutMs);
+        return new RestTemplate(requestFactory);
+    }
+}
+
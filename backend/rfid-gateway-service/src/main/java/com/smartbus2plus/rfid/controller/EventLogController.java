@@ -0,0 +1,53 @@
+package com.smartbus2plus.rfid.controller;
+
+import com.smartbus2plus.rfid.dto.RFIDDto;
+import com.smartbus2plus.rfid.service.RFIDEventLog;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Replay and point-in-time queries over the local RFID event log
+ */
+@RestController
+@RequestMapping("/api/rfid/log")
+@Tag(name = "RFID Event Log", description = "Replayable RFID event log")
+public class EventLogController {
+    
+    @Autowired
+    private RFIDEventLog rfidEventLog;
+    
+    @GetMapping("/events")
+    @Operation(summary = "Replay events from an offset", description = "Read logged RFID events in order starting at an offset")
+    public ResponseEntity<List<RFIDDto.LoggedEvent>> readFromOffset(
+            @RequestParam(defaultValue = "0") long fromOffset,
+            @RequestParam(defaultValue = "100") int limit) {
+        List<RFIDDto.LoggedEvent> events = rfidEventLog.read(fromOffset, Math.min(limit, 1000));
+        return ResponseEntity.ok(events);
+    }
+    
+    @GetMapping("/events/since")
+    @Operation(summary = "Replay events from a time", description = "Read logged RFID events in order starting at a point in time")
+    public ResponseEntity<List<RFIDDto.LoggedEvent>> readFromTime(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime time,
+            @RequestParam(defaultValue = "100") int limit) {
+        List<RFIDDto.LoggedEvent> events = rfidEventLog.read(rfidEventLog.offsetAt(time), Math.min(limit, 1000));
+        return ResponseEntity.ok(events);
+    }
+    
+    @GetMapping("/onboard/bus/{busId}")
+    @Operation(summary = "Onboard passengers at a point in time", description = "Rebuild who was onboard a bus at the given time from the event log")
+    public ResponseEntity<RFIDDto.OnboardManifest> getOnboardAt(
+            @PathVariable Long busId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        RFIDDto.OnboardManifest onboard = rfidEventLog.getOnboardAt(busId, at);
+        return ResponseEntity.ok(onboard);
+    }
+}
+
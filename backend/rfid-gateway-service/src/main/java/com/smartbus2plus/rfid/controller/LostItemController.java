@@ -0,0 +1,52 @@
+package com.smartbus2plus.rfid.controller;
+
+import com.smartbus2plus.rfid.model.LostItem;
+import com.smartbus2plus.rfid.service.LostItemTracker;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * Lost-item tag tracking controller
+ */
+@RestController
+@RequestMapping("/api/rfid/lost-items")
+@Tag(name = "Lost Items", description = "RFID-tagged lost item tracking")
+public class LostItemController {
+    
+    @Autowired
+    private LostItemTracker lostItemTracker;
+    
+    @PostMapping
+    @Operation(summary = "Register lost item", description = "Register a tagged item as lost so readers report where it is seen")
+    public ResponseEntity<LostItem> registerLostItem(@RequestBody LostItem lostItem) {
+        LostItem saved = lostItemTracker.registerLostItem(lostItem);
+        return ResponseEntity.ok(saved);
+    }
+    
+    @GetMapping
+    @Operation(summary = "Get lost items", description = "Retrieve all items still marked as lost with their last sighting")
+    public ResponseEntity<List<LostItem>> getLostItems() {
+        List<LostItem> items = lostItemTracker.getLostItems();
+        return ResponseEntity.ok(items);
+    }
+    
+    @GetMapping("/tag/{tagId}")
+    @Operation(summary = "Get lost item by tag", description = "Retrieve a lost item and its last sighting by RFID tag")
+    public ResponseEntity<LostItem> getByTag(@PathVariable String tagId) {
+        LostItem item = lostItemTracker.getByTag(tagId);
+        return ResponseEntity.ok(item);
+    }
+    
+    @PutMapping("/{id}/status")
+    @Operation(summary = "Update lost item status", description = "Mark an item as found or returned, which stops tracking it")
+    public ResponseEntity<LostItem> updateStatus(@PathVariable Long id, @RequestParam LostItem.Status status) {
+        LostItem item = lostItemTracker.updateStatus(id, status);
+        return ResponseEntity.ok(item);
+    }
+}
+
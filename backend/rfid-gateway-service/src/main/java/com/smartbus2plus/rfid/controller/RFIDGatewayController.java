@@ -52,6 +52,20 @@ public class RFIDGatewayController {
         return ResponseEntity.ok(status);
     }
     
+    @GetMapping("/manifest/bus/{busId}")
+    @Operation(summary = "Get boarding manifest", description = "Get today's locally held boarding manifest for a specific bus")
+    public ResponseEntity<List<RFIDDto.ManifestEntry>> getManifest(@PathVariable Long busId) {
+        List<RFIDDto.ManifestEntry> manifest = rfidGatewayService.getManifest(busId);
+        return ResponseEntity.ok(manifest);
+    }
+    
+    @GetMapping("/onboard/bus/{busId}")
+    @Operation(summary = "Get onboard passengers", description = "Snapshot of passengers currently onboard; live deltas follow on /topic/rfid/bus/{busId}")
+    public ResponseEntity<RFIDDto.OnboardManifest> getOnboard(@PathVariable Long busId) {
+        RFIDDto.OnboardManifest onboard = rfidGatewayService.getOnboard(busId);
+        return ResponseEntity.ok(onboard);
+    }
+    
     @GetMapping("/health")
     @Operation(summary = "Health check", description = "Check RFID Gateway service health")
     public ResponseEntity<String> healthCheck() {
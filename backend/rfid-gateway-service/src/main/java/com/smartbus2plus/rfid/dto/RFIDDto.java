@@ -3,13 +3,20 @@ package com.smartbus2plus.rfid.dto;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.smartbus2plus.rfid.model.RFIDEvent;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
 
 /**
  * DTOs for RFID events and boarding data
  */
 public class RFIDDto {
     
+    public enum ScanResult {
+        ACCEPTED, INVALID_TICKET, UNKNOWN_TICKET, RATE_LIMITED, LOST_ITEM, INVALID_REQUEST
+    }
+    
     public static class RFIDScanRequest {
         private Long busId;
         private String rfidReaderId;
@@ -43,6 +50,7 @@ public class RFIDDto {
         private boolean success;
         private String message;
         private RFIDEvent.EventType eventType;
+        private ScanResult result;
         private Long passengerId;
         private String seatNumber;
         private String busNumber;
@@ -67,6 +75,9 @@ public class RFIDDto {
         public RFIDEvent.EventType getEventType() { return eventType; }
         public void setEventType(RFIDEvent.EventType eventType) { this.eventType = eventType; }
         
+        public ScanResult getResult() { return result; }
+        public void setResult(ScanResult result) { this.result = result; }
+        
         public Long getPassengerId() { return passengerId; }
         public void setPassengerId(Long passengerId) { this.passengerId = passengerId; }
         
@@ -86,6 +97,8 @@ public class RFIDDto {
         private int totalPassengers;
         private int boardedPassengers;
         private int missedPassengers;
+        private int failedScans;
+        private int onboardPassengers;
         private double boardingPercentage;
         private LocalDateTime lastUpdate;
         
@@ -118,6 +131,12 @@ public class RFIDDto {
         public int getMissedPassengers() { return missedPassengers; }
         public void setMissedPassengers(int missedPassengers) { this.missedPassengers = missedPassengers; }
         
+        public int getFailedScans() { return failedScans; }
+        public void setFailedScans(int failedScans) { this.failedScans = failedScans; }
+        
+        public int getOnboardPassengers() { return onboardPassengers; }
+        public void setOnboardPassengers(int onboardPassengers) { this.onboardPassengers = onboardPassengers; }
+        
         public double getBoardingPercentage() { return boardingPercentage; }
         public void setBoardingPercentage(double boardingPercentage) { this.boardingPercentage = boardingPercentage; }
         
@@ -174,5 +193,189 @@ public class RFIDDto {
         public LocalDateTime getAlertTime() { return alertTime; }
         public void setAlertTime(LocalDateTime alertTime) { this.alertTime = alertTime; }
     }
+    
+    public static class ManifestEntry {
+        private Long bookingId;
+        private String rfidTicketId;
+        private Long userId;
+        private Long scheduleId;
+        private Long busId;
+        private String seatNumber;
+        private LocalDate travelDate;
+        private LocalTime departureTime;
+        private String bookingStatus;
+        private String boardingStatus;
+        
+        public ManifestEntry() {}
+        
+        // Getters and Setters
+        public Long getBookingId() { return bookingId; }
+        public void setBookingId(Long bookingId) { this.bookingId = bookingId; }
+        
+        public String getRfidTicketId() { return rfidTicketId; }
+        public void setRfidTicketId(String rfidTicketId) { this.rfidTicketId = rfidTicketId; }
+        
+        public Long getUserId() { return userId; }
+        public void setUserId(Long userId) { this.userId = userId; }
+        
+        public Long getScheduleId() { return scheduleId; }
+        public void setScheduleId(Long scheduleId) { this.scheduleId = scheduleId; }
+        
+        public Long getBusId() { return busId; }
+        public void setBusId(Long busId) { this.busId = busId; }
+        
+        public String getSeatNumber() { return seatNumber; }
+        public void setSeatNumber(String seatNumber) { this.seatNumber = seatNumber; }
+        
+        public LocalDate getTravelDate() { return travelDate; }
+        public void setTravelDate(LocalDate travelDate) { this.travelDate = travelDate; }
+        
+        public LocalTime getDepartureTime() { return departureTime; }
+        public void setDepartureTime(LocalTime departureTime) { this.departureTime = departureTime; }
+        
+        public String getBookingStatus() { return bookingStatus; }
+        public void setBookingStatus(String bookingStatus) { this.bookingStatus = bookingStatus; }
+        
+        public String getBoardingStatus() { return boardingStatus; }
+        public void setBoardingStatus(String boardingStatus) { this.boardingStatus = boardingStatus; }
+    }
+    
+    public static class BookingEvent {
+        private String eventType; // CREATED, CONFIRMED, CANCELLED, BOARDED
+        private ManifestEntry booking;
+        private LocalDateTime eventTime;
+        
+        public BookingEvent() {}
+        
+        // Getters and Setters
+        public String getEventType() { return eventType; }
+        public void setEventType(String eventType) { this.eventType = eventType; }
+        
+        public ManifestEntry getBooking() { return booking; }
+        public void setBooking(ManifestEntry booking) { this.booking = booking; }
+        
+        public LocalDateTime getEventTime() { return eventTime; }
+        public void setEventTime(LocalDateTime eventTime) { this.eventTime = eventTime; }
+    }
+    
+    public static class OnboardPassenger {
+        private String ticketId;
+        private Long passengerId;
+        private String seatNumber;
+        private LocalDateTime boardedAt;
+        
+        public OnboardPassenger() {}
+        
+        public OnboardPassenger(String ticketId, Long passengerId, String seatNumber, LocalDateTime boardedAt) {
+            this.ticketId = ticketId;
+            this.passengerId = passengerId;
+            this.seatNumber = seatNumber;
+            this.boardedAt = boardedAt;
+        }
+        
+        // Getters and Setters
+        public String getTicketId() { return ticketId; }
+        public void setTicketId(String ticketId) { this.ticketId = ticketId; }
+        
+        public Long getPassengerId() { return passengerId; }
+        public void setPassengerId(Long passengerId) { this.passengerId = passengerId; }
+        
+        public String getSeatNumber() { return seatNumber; }
+        public void setSeatNumber(String seatNumber) { this.seatNumber = seatNumber; }
+        
+        public LocalDateTime getBoardedAt() { return boardedAt; }
+        public void setBoardedAt(LocalDateTime boardedAt) { this.boardedAt = boardedAt; }
+    }
+    
+    public static class OnboardDelta {
+        private String updateType = "ONBOARD_DELTA"; // distinguishes deltas from raw events on the bus topic
+        private Long busId;
+        private long sequence;
+        private String action; // BOARDED, ALIGHTED, EXPIRED
+        private OnboardPassenger passenger;
+        private int onboardCount;
+        private LocalDateTime timestamp;
+        
+        public OnboardDelta() {}
+        
+        public OnboardDelta(Long busId, long sequence, String action, OnboardPassenger passenger, int onboardCount) {
+            this.busId = busId;
+            this.sequence = sequence;
+            this.action = action;
+            this.passenger = passenger;
+            this.onboardCount = onboardCount;
+            this.timestamp = LocalDateTime.now();
+        }
+        
+        // Getters and Setters
+        public String getUpdateType() { return updateType; }
+        public void setUpdateType(String updateType) { this.updateType = updateType; }
+        
+        public Long getBusId() { return busId; }
+        public void setBusId(Long busId) { this.busId = busId; }
+        
+        public long getSequence() { return sequence; }
+        public void setSequence(long sequence) { this.sequence = sequence; }
+        
+        public String getAction() { return action; }
+        public void setAction(String action) { this.action = action; }
+        
+        public OnboardPassenger getPassenger() { return passenger; }
+        public void setPassenger(OnboardPassenger passenger) { this.passenger = passenger; }
+        
+        public int getOnboardCount() { return onboardCount; }
+        public void setOnboardCount(int onboardCount) { this.onboardCount = onboardCount; }
+        
+        public LocalDateTime getTimestamp() { return timestamp; }
+        public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
+    }
+    
+    public static class LoggedEvent {
+        private long offset;
+        private LocalDateTime loggedAt;
+        private RFIDEvent event;
+        
+        public LoggedEvent() {}
+        
+        public LoggedEvent(long offset, LocalDateTime loggedAt, RFIDEvent event) {
+            this.offset = offset;
+            this.loggedAt = loggedAt;
+            this.event = event;
+        }
+        
+        // Getters and Setters
+        public long getOffset() { return offset; }
+        public void setOffset(long offset) { this.offset = offset; }
+        
+        public LocalDateTime getLoggedAt() { return loggedAt; }
+        public void setLoggedAt(LocalDateTime loggedAt) { this.loggedAt = loggedAt; }
+        
+        public RFIDEvent getEvent() { return event; }
+        public void setEvent(RFIDEvent event) { this.event = event; }
+    }
+    
+    public static class OnboardManifest {
+        private Long busId;
+        private long sequence; // deltas with a higher sequence apply on top of this snapshot
+        private List<OnboardPassenger> passengers;
+        
+        public OnboardManifest() {}
+        
+        public OnboardManifest(Long busId, long sequence, List<OnboardPassenger> passengers) {
+            this.busId = busId;
+            this.sequence = sequence;
+            this.passengers = passengers;
+        }
+        
+        // Getters and Setters
+        public Long getBusId() { return busId; }
+        public void setBusId(Long busId) { this.busId = busId; }
+        
+        public long getSequence() { return sequence; }
+        public void setSequence(long sequence) { this.sequence = sequence; }
+        
+        public List<OnboardPassenger> getPassengers() { return passengers; }
+        public void setPassengers(List<OnboardPassenger> passengers) { this.passengers = passengers; }
+    }
 }
 
@@ -0,0 +1,88 @@
+package com.smartbus2plus.rfid.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lost item carrying an RFID tag, tracked by where readers last saw it
+ */
+@Entity
+@Table(name = "lost_items")
+public class LostItem {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @NotBlank
+    @Column(name = "item_name")
+    private String itemName;
+    
+    @NotBlank
+    @Column(name = "rfid_tag_id", unique = true)
+    private String rfidTagId;
+    
+    @Column(name = "last_seen_bus_id")
+    private Long lastSeenBusId;
+    
+    @Column(name = "last_seen_location")
+    private String lastSeenLocation;
+    
+    @Column(name = "last_seen_time")
+    private LocalDateTime lastSeenTime;
+    
+    @Enumerated(EnumType.STRING)
+    private Status status = Status.LOST;
+    
+    @CreationTimestamp
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    public enum Status {
+        LOST, FOUND, RETURNED
+    }
+    
+    // Constructors
+    public LostItem() {}
+    
+    public LostItem(Long userId, String itemName, String rfidTagId) {
+        this.userId = userId;
+        this.itemName = itemName;
+        this.rfidTagId = rfidTagId;
+    }
+    
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    
+    public Long getUserId() { return userId; }
+    public void setUserId(Long userId) { this.userId = userId; }
+    
+    public String getItemName() { return itemName; }
+    public void setItemName(String itemName) { this.itemName = itemName; }
+    
+    public String getRfidTagId() { return rfidTagId; }
+    public void setRfidTagId(String rfidTagId) { this.rfidTagId = rfidTagId; }
+    
+    public Long getLastSeenBusId() { return lastSeenBusId; }
+    public void setLastSeenBusId(Long lastSeenBusId) { this.lastSeenBusId = lastSeenBusId; }
+    
+    public String getLastSeenLocation() { return lastSeenLocation; }
+    public void setLastSeenLocation(String lastSeenLocation) { this.lastSeenLocation = lastSeenLocation; }
+    
+    public LocalDateTime getLastSeenTime() { return lastSeenTime; }
+    public void setLastSeenTime(LocalDateTime lastSeenTime) { this.lastSeenTime = lastSeenTime; }
+    
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+    
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
+
@@ -3,7 +3,6 @@ package com.smartbus2plus.rfid.model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
-import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
 
@@ -37,7 +36,6 @@ public class RFIDEvent {
     @Column(name = "event_type")
     private EventType eventType;
     
-    @CreationTimestamp
     @Column(name = "event_time")
     private LocalDateTime eventTime;
     
@@ -54,6 +52,14 @@ public class RFIDEvent {
         BOARDING, ALIGHTING, SCAN_FAILED, TICKET_VALIDATED, TICKET_INVALID
     }
     
+    @PrePersist
+    protected void onCreate() {
+        // Events are stored after the scan (and possibly replayed), so keep the scan time
+        if (eventTime == null) {
+            eventTime = LocalDateTime.now();
+        }
+    }
+    
     // Constructors
     public RFIDEvent() {}
     
@@ -0,0 +1,31 @@
+package com.smartbus2plus.rfid.repository;
+
+import com.smartbus2plus.rfid.model.LostItem;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for lost items
+ */
+@Repository
+public interface LostItemRepository extends JpaRepository<LostItem, Long> {
+    
+    Optional<LostItem> findByRfidTagId(String rfidTagId);
+    
+    List<LostItem> findByRfidTagIdIn(Collection<String> rfidTagIds);
+    
+    List<LostItem> findByStatus(LostItem.Status status);
+    
+    List<LostItem> findByUserId(Long userId);
+    
+    // last_seen_bus_id references buses(id), which this service has no entity for
+    @Query(value = "SELECT id FROM buses WHERE id IN (:busIds)", nativeQuery = true)
+    List<Long> findExistingBusIds(@Param("busIds") Collection<Long> busIds);
+}
+
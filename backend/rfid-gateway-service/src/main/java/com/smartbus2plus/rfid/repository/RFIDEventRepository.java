@@ -29,5 +29,18 @@ public interface RFIDEventRepository extends JpaRepository<RFIDEvent, Long> {
     
     @Query("SELECT COUNT(r) FROM RFIDEvent r WHERE r.busId = :busId AND r.eventType = :eventType AND r.success = true")
     Long countSuccessfulEventsByBusAndType(@Param("busId") Long busId, @Param("eventType") RFIDEvent.EventType eventType);
+    
+    List<RFIDEvent> findByEventTimeAfterAndSuccessTrueOrderByEventTimeAsc(LocalDateTime since);
+    
+    boolean existsByBusIdAndRfidReaderIdAndTicketIdAndEventTime(Long busId, String rfidReaderId, String ticketId, LocalDateTime eventTime);
+    
+    @Query("SELECT r.busId, r.eventType, r.success, COUNT(r) FROM RFIDEvent r WHERE r.eventTime >= :since AND r.eventTime < :until GROUP BY r.busId, r.eventType, r.success")
+    List<Object[]> countEventsBetween(@Param("since") LocalDateTime since, @Param("until") LocalDateTime until);
+    
+    List<RFIDEvent> findByEventTimeGreaterThanEqual(LocalDateTime since);
+    
+    // bus_id references buses(id), which this service has no entity for
+    @Query(value = "SELECT id FROM buses", nativeQuery = true)
+    List<Long> findAllBusIds();
 }
 
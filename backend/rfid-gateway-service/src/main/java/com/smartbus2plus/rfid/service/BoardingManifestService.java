@@ -0,0 +1,276 @@
+package com.smartbus2plus.rfid.service;
+
+import com.smartbus2plus.rfid.dto.RFIDDto;
+import com.smartbus2plus.rfid.util.BloomFilter;
+import com.smartbus2plus.rfid.util.OpenAddressingIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory boarding manifests keyed by travel date, one ticket index per bus.
+ * Preloaded from booking-service and kept current from booking-events, so scans are
+ * validated locally and keep working while booking-service is unreachable. Only
+ * CONFIRMED bookings are held, so pending ones can never be released as no-shows.
+ * Yesterday's manifest is kept until the next rollover, so departures just before
+ * midnight are still judged against their own manifest after it.
+ */
+@Service
+public class BoardingManifestService {
+    
+    @Autowired
+    private RestTemplate restTemplate;
+    
+    @Value("${rfid.manifest.booking-service-url:http://booking-service/api/booking/manifest}")
+    private String manifestUrl;
+    
+    @Value("${rfid.manifest.bloom.false-positive-rate:0.01}")
+    private double bloomFalsePositiveRate;
+    
+    // Travel date -> manifest, newest first; holds today and, after a rollover, yesterday
+    private final ConcurrentSkipListMap<LocalDate, DayManifest> days =
+            new ConcurrentSkipListMap<>(Collections.reverseOrder());
+    
+    // Departures seen on the held manifests, handed to the departure monitor once each
+    private final Set<String> knownDepartures = ConcurrentHashMap.newKeySet();
+    private final Queue<Departure> newDepartures = new ConcurrentLinkedQueue<>();
+    
+    // Booking events received while a refresh is fetching, replayed onto the fetched manifest
+    private final Object lock = new Object();
+    private List<RFIDDto.BookingEvent> arrivedDuringLoad;
+    
+    /**
+     * The ticket's entry on any held manifest; ticket IDs are unique per booking, so at most one matches
+     */
+    public RFIDDto.ManifestEntry lookup(Long busId, String ticketId) {
+        for (DayManifest day : days.values()) {
+            OpenAddressingIndex<RFIDDto.ManifestEntry> index = day.buses.get(busId);
+            RFIDDto.ManifestEntry entry = index != null ? index.get(ticketId) : null;
+            if (entry != null) {
+                return entry;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * False only for tickets that are on no held manifest; checked before any I/O
+     */
+    public boolean mightBeValid(String ticketId) {
+        if (days.isEmpty()) {
+            return true;
+        }
+        if (ticketId == null) {
+            return false;
+        }
+        for (DayManifest day : days.values()) {
+            if (day.filter.mightContain(ticketId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    public int getExpectedPassengers(Long busId) {
+        OpenAddressingIndex<RFIDDto.ManifestEntry> index = today().get(busId);
+        return index != null ? index.size() : 0;
+    }
+    
+    public List<RFIDDto.ManifestEntry> getManifest(Long busId) {
+        OpenAddressingIndex<RFIDDto.ManifestEntry> index = today().get(busId);
+        return index != null ? index.values() : Collections.emptyList();
+    }
+    
+    public List<RFIDDto.ManifestEntry> getManifest(Long busId, LocalDate travelDate) {
+        DayManifest day = days.get(travelDate);
+        OpenAddressingIndex<RFIDDto.ManifestEntry> index = day != null ? day.buses.get(busId) : null;
+        return index != null ? index.values() : Collections.emptyList();
+    }
+    
+    /**
+     * Some ticket on the bus's manifest, or null if it has none; used by the scan simulator
+     */
+    public RFIDDto.ManifestEntry sampleTicket(Long busId, Random random) {
+        OpenAddressingIndex<RFIDDto.ManifestEntry> index = today().get(busId);
+        return index != null ? index.valueNear(random.nextInt(Integer.MAX_VALUE)) : null;
+    }
+    
+    public void remove(Long busId, String ticketId) {
+        for (DayManifest day : days.values()) {
+            OpenAddressingIndex<RFIDDto.ManifestEntry> index = day.buses.get(busId);
+            if (index != null) {
+                index.remove(ticketId);
+            }
+        }
+    }
+    
+    /**
+     * Next departure not handed out before, or null if there is none
+     */
+    public Departure pollNewDeparture() {
+        return newDepartures.poll();
+    }
+    
+    /**
+     * Travel date of the newest manifest held, or null before the first load
+     */
+    public LocalDate getManifestDate() {
+        return days.isEmpty() ? null : days.firstKey();
+    }
+    
+    // Runs at startup, then periodically to reconcile anything the event stream missed
+    @Scheduled(fixedRateString = "${rfid.manifest.refresh-interval-ms:300000}")
+    public void refresh() {
+        LocalDate today = LocalDate.now();
+        List<RFIDDto.BookingEvent> arrived = new ArrayList<>();
+        synchronized (lock) {
+            arrivedDuringLoad = arrived;
+        }
+        RFIDDto.ManifestEntry[] entries;
+        try {
+            entries = restTemplate.getForObject(
+                manifestUrl + "?travelDate={travelDate}", RFIDDto.ManifestEntry[].class, today);
+        } catch (RuntimeException e) {
+            synchronized (lock) {
+                arrivedDuringLoad = null;
+            }
+            throw e;
+        }
+        
+        // Build the new manifest aside and swap it in; a failed fetch leaves the old one serving
+        Map<Long, OpenAddressingIndex<RFIDDto.ManifestEntry>> loaded = new ConcurrentHashMap<>();
+        int count = entries != null ? entries.length : 0;
+        // Sized with headroom for the day's new bookings, which arrive as events
+        BloomFilter filter = new BloomFilter(Math.max(count * 2, 1024), bloomFalsePositiveRate);
+        DayManifest day = new DayManifest(loaded, filter);
+        if (entries != null) {
+            for (RFIDDto.ManifestEntry entry : entries) {
+                if (entry.getBusId() != null && entry.getRfidTicketId() != null
+                        && "CONFIRMED".equals(entry.getBookingStatus()) && !"MISSED".equals(entry.getBoardingStatus())) {
+                    trackDeparture(entry);
+                    loaded.computeIfAbsent(entry.getBusId(), id -> new OpenAddressingIndex<>(64))
+                            .put(entry.getRfidTicketId(), entry);
+                    filter.add(entry.getRfidTicketId());
+                }
+            }
+        }
+        synchronized (lock) {
+            // The fetch may predate any of these, so they are applied on top in arrival order
+            for (RFIDDto.BookingEvent event : arrived) {
+                apply(day, event);
+            }
+            days.put(today, day);
+            arrivedDuringLoad = null;
+        }
+    }
+    
+    @Scheduled(cron = "${rfid.manifest.rollover-cron:5 0 0 * * *}") // Just after midnight
+    public void rollover() {
+        // Yesterday stays for departures still inside their grace period; anything older goes
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        days.tailMap(yesterday, false).clear();
+        knownDepartures.removeIf(key -> LocalDate.parse(key.substring(key.lastIndexOf(':') + 1)).isBefore(yesterday));
+        refresh();
+    }
+    
+    @KafkaListener(topics = "booking-events", groupId = "rfid-manifest-${random.uuid}",
+                   containerFactory = "bookingEventListenerFactory")
+    public void onBookingEvent(RFIDDto.BookingEvent event) {
+        RFIDDto.ManifestEntry entry = event.getBooking();
+        if (entry == null || entry.getBusId() == null || entry.getRfidTicketId() == null
+                || entry.getTravelDate() == null) {
+            return;
+        }
+        synchronized (lock) {
+            if (arrivedDuringLoad != null && entry.getTravelDate().equals(LocalDate.now())) {
+                arrivedDuringLoad.add(event);
+            }
+            DayManifest day = days.get(entry.getTravelDate());
+            if (day != null) {
+                apply(day, event);
+            }
+        }
+    }
+    
+    private void apply(DayManifest day, RFIDDto.BookingEvent event) {
+        RFIDDto.ManifestEntry entry = event.getBooking();
+        OpenAddressingIndex<RFIDDto.ManifestEntry> index = day.buses.get(entry.getBusId());
+        if (!"CONFIRMED".equals(entry.getBookingStatus()) || "MISSED".equals(event.getEventType())) {
+            // Cancelled, released as a no-show, or not confirmed yet
+            if (index != null) {
+                index.remove(entry.getRfidTicketId());
+            }
+        } else {
+            trackDeparture(entry);
+            // Add to the filter first so a concurrent scan never sees the entry but not the bit
+            day.filter.add(entry.getRfidTicketId());
+            day.buses.computeIfAbsent(entry.getBusId(), id -> new OpenAddressingIndex<>(64))
+                    .put(entry.getRfidTicketId(), entry);
+        }
+    }
+    
+    private Map<Long, OpenAddressingIndex<RFIDDto.ManifestEntry>> today() {
+        DayManifest day = days.get(LocalDate.now());
+        return day != null ? day.buses : Collections.emptyMap();
+    }
+    
+    private void trackDeparture(RFIDDto.ManifestEntry entry) {
+        if (entry.getScheduleId() != null && entry.getDepartureTime() != null
+                && knownDepartures.add(entry.getBusId() + ":" + entry.getScheduleId() + ":" + entry.getTravelDate())) {
+            newDepartures.offer(new Departure(entry.getBusId(), entry.getScheduleId(),
+                    entry.getTravelDate(), entry.getDepartureTime()));
+        }
+    }
+    
+    private static final class DayManifest {
+        private final Map<Long, OpenAddressingIndex<RFIDDto.ManifestEntry>> buses;
+        private final BloomFilter filter;
+        
+        DayManifest(Map<Long, OpenAddressingIndex<RFIDDto.ManifestEntry>> buses, BloomFilter filter) {
+            this.buses = buses;
+            this.filter = filter;
+        }
+    }
+    
+    /**
+     * One scheduled departure of a bus on the manifest
+     */
+    public static final class Departure {
+        private final Long busId;
+        private final Long scheduleId;
+        private final LocalDate travelDate;
+        private final LocalTime departureTime;
+        
+        Departure(Long busId, Long scheduleId, LocalDate travelDate, LocalTime departureTime) {
+            this.busId = busId;
+            this.scheduleId = scheduleId;
+            this.travelDate = travelDate;
+            this.departureTime = departureTime;
+        }
+        
+        public Long getBusId() { return busId; }
+        
+        public Long getScheduleId() { return scheduleId; }
+        
+        public LocalDate getTravelDate() { return travelDate; }
+        
+        public LocalTime getDepartureTime() { return departureTime; }
+    }
+}
+
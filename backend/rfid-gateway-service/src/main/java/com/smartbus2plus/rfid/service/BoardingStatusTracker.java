@@ -0,0 +1,176 @@
+package com.smartbus2plus.rfid.service;
+
+import com.smartbus2plus.rfid.dto.RFIDDto;
+import com.smartbus2plus.rfid.model.RFIDEvent;
+import com.smartbus2plus.rfid.repository.RFIDEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Per-bus boarding counters for today, updated on every scan and served from memory.
+ * Periodically rebuilt from rfid_events plus the events the writer has not stored yet, so
+ * counts converge after restarts or missed updates; scans recorded while a rebuild runs are
+ * added before the rebuilt counters replace the live ones, each event counted once.
+ */
+@Service
+public class BoardingStatusTracker {
+    
+    @Autowired
+    private RFIDEventRepository rfidEventRepository;
+    
+    @Autowired
+    private BoardingManifestService boardingManifestService;
+    
+    @Autowired
+    private OnboardManifestService onboardManifestService;
+    
+    @Autowired
+    private RFIDEventWriter rfidEventWriter;
+    
+    private volatile Map<Long, BusCounters> counters = new ConcurrentHashMap<>();
+    
+    // Record takes the read side, so scans only wait while reconcile swaps the maps
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private Queue<RFIDEvent> recordedDuringRebuild;
+    
+    public void record(RFIDEvent event) {
+        swapLock.readLock().lock();
+        try {
+            count(counters, event);
+            if (recordedDuringRebuild != null) {
+                recordedDuringRebuild.add(event);
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+    
+    public RFIDDto.BoardingStatus getStatus(Long busId) {
+        BusCounters bus = counters.get(busId);
+        int expected = boardingManifestService.getExpectedPassengers(busId);
+        int boarded = bus != null ? bus.boarded.intValue() : 0;
+        
+        RFIDDto.BoardingStatus status = new RFIDDto.BoardingStatus(
+            busId, "BUS-" + busId, expected, boarded, Math.max(0, expected - boarded));
+        status.setFailedScans(bus != null ? bus.failed.intValue() : 0);
+        status.setOnboardPassengers(onboardManifestService.getOnboardCount(busId));
+        return status;
+    }
+    
+    @Scheduled(fixedRateString = "${rfid.boarding-status.reconcile-interval-ms:60000}")
+    public void reconcile() {
+        LocalDateTime startOfDay = LocalDate.now().atStartOfDay();
+        Queue<RFIDEvent> recorded = new ConcurrentLinkedQueue<>();
+        swapLock.writeLock().lock();
+        try {
+            recordedDuringRebuild = recorded;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        
+        // Scans are counted when accepted but stored later: the table is only part of the picture.
+        // Taken after recording starts, so every event is in the table, this snapshot or recorded.
+        Map<String, RFIDEvent> recent = new HashMap<>();
+        Map<Long, BusCounters> rebuilt = new ConcurrentHashMap<>();
+        LocalDateTime cutoff;
+        try {
+            LocalDateTime oldestUnstored = LocalDateTime.now();
+            for (RFIDEvent event : rfidEventWriter.getUnstoredEvents()) {
+                if (!event.getEventTime().isBefore(startOfDay)) {
+                    recent.putIfAbsent(RFIDEventWriter.storageKey(event), event);
+                    if (event.getEventTime().isBefore(oldestUnstored)) {
+                        oldestUnstored = event.getEventTime();
+                    }
+                }
+            }
+            cutoff = oldestUnstored.isBefore(startOfDay) ? startOfDay : oldestUnstored;
+            // Grouped counts up to the oldest unstored event; rows after it, since those may also be in the snapshot
+            countStored(rebuilt, startOfDay, cutoff);
+            for (RFIDEvent event : rfidEventRepository.findByEventTimeGreaterThanEqual(cutoff)) {
+                recent.putIfAbsent(RFIDEventWriter.storageKey(event), event);
+            }
+            addRecorded(recent, recorded, startOfDay, cutoff);
+        } catch (RuntimeException e) {
+            swapLock.writeLock().lock();
+            try {
+                recordedDuringRebuild = null;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+            throw e;
+        }
+        
+        swapLock.writeLock().lock();
+        try {
+            // Whatever was recorded since the pass above
+            addRecorded(recent, recorded, startOfDay, cutoff);
+            for (RFIDEvent event : recent.values()) {
+                count(rebuilt, event);
+            }
+            counters = rebuilt;
+            recordedDuringRebuild = null;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+    
+    private void addRecorded(Map<String, RFIDEvent> recent, Queue<RFIDEvent> recorded,
+                             LocalDateTime startOfDay, LocalDateTime cutoff) {
+        RFIDEvent event;
+        while ((event = recorded.poll()) != null) {
+            if (event.getEventTime().isBefore(startOfDay) || recent.containsKey(RFIDEventWriter.storageKey(event))) {
+                continue;
+            }
+            // Timestamped before the cutoff but recorded late: it may already be in the grouped counts
+            if (event.getEventTime().isBefore(cutoff) && rfidEventRepository.existsByBusIdAndRfidReaderIdAndTicketIdAndEventTime(
+                    event.getBusId(), event.getRfidReaderId(), event.getTicketId(), event.getEventTime())) {
+                continue;
+            }
+            recent.put(RFIDEventWriter.storageKey(event), event);
+        }
+    }
+    
+    private void countStored(Map<Long, BusCounters> rebuilt, LocalDateTime since, LocalDateTime until) {
+        // One grouped count for all buses; also resets the counters when the day rolls over
+        for (Object[] row : rfidEventRepository.countEventsBetween(since, until)) {
+            Long busId = (Long) row[0];
+            RFIDEvent.EventType eventType = (RFIDEvent.EventType) row[1];
+            Boolean success = (Boolean) row[2];
+            long count = (Long) row[3];
+            
+            BusCounters bus = rebuilt.computeIfAbsent(busId, id -> new BusCounters());
+            if (!Boolean.TRUE.equals(success)) {
+                bus.failed.add(count);
+            } else if (eventType == RFIDEvent.EventType.BOARDING) {
+                bus.boarded.add(count);
+            }
+        }
+    }
+    
+    private static void count(Map<Long, BusCounters> counters, RFIDEvent event) {
+        BusCounters bus = counters.computeIfAbsent(event.getBusId(), id -> new BusCounters());
+        if (!Boolean.TRUE.equals(event.getSuccess())) {
+            bus.failed.increment();
+        } else if (event.getEventType() == RFIDEvent.EventType.BOARDING) {
+            bus.boarded.increment();
+        }
+    }
+    
+    private static final class BusCounters {
+        private final LongAdder boarded = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+    }
+}
+
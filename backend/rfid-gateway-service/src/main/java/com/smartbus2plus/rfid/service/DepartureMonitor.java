@@ -0,0 +1,129 @@
+package com.smartbus2plus.rfid.service;
+
+import com.smartbus2plus.rfid.dto.RFIDDto;
+import com.smartbus2plus.rfid.util.TimerWheel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Releases no-show seats when a bus departs.
+ * Each departure on today's manifest is placed on a timer wheel at its departure time
+ * plus a grace period. When it fires, the manifest for that schedule is diffed in memory
+ * against the tickets that boarded, and the no-shows are sent to booking-service in one
+ * call, which marks them MISSED and frees their seats for resale.
+ * Boardings are judged from this gateway's own scans, so with several gateways serving
+ * the same buses only one of them should have the monitor enabled.
+ */
+@Service
+public class DepartureMonitor {
+    
+    @Autowired
+    private BoardingManifestService boardingManifestService;
+    
+    @Autowired
+    private OnboardManifestService onboardManifestService;
+    
+    @Autowired
+    private RestTemplate restTemplate;
+    
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+    
+    @Value("${rfid.departure.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${rfid.departure.missed-url:http://booking-service/api/booking/missed}")
+    private String missedUrl;
+    
+    @Value("${rfid.departure.grace-minutes:2}")
+    private long graceMinutes;
+    
+    @Value("${rfid.departure.catch-up-minutes:10}") // departures older than this at startup are left alone
+    private long catchUpMinutes;
+    
+    @Value("${rfid.departure.retry-delay-ms:30000}")
+    private long retryDelayMs;
+    
+    // One-second ticks, one hour per revolution
+    private final TimerWheel<BoardingManifestService.Departure> wheel =
+            new TimerWheel<>(1000, 3600, System.currentTimeMillis());
+    
+    @Scheduled(fixedRate = 1000)
+    public void tick() {
+        // No-shows can only be judged once today's boardings have been replayed
+        if (!enabled || !onboardManifestService.isRebuilt()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        
+        BoardingManifestService.Departure departure;
+        while ((departure = boardingManifestService.pollNewDeparture()) != null) {
+            long deadline = LocalDateTime.of(departure.getTravelDate(), departure.getDepartureTime())
+                    .plusMinutes(graceMinutes)
+                    .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            if (deadline >= now - catchUpMinutes * 60_000) {
+                wheel.schedule(departure, deadline);
+            }
+        }
+        
+        for (BoardingManifestService.Departure due : wheel.advance(now)) {
+            try {
+                releaseNoShows(due);
+            } catch (RuntimeException e) {
+                // booking-service unreachable: try this departure again shortly
+                wheel.schedule(due, now + retryDelayMs);
+            }
+        }
+    }
+    
+    private void releaseNoShows(BoardingManifestService.Departure departure) {
+        List<RFIDDto.ManifestEntry> noShows = new ArrayList<>();
+        for (RFIDDto.ManifestEntry entry : boardingManifestService.getManifest(departure.getBusId(), departure.getTravelDate())) {
+            if (departure.getScheduleId().equals(entry.getScheduleId())
+                    && departure.getTravelDate().equals(entry.getTravelDate())
+                    && !"BOARDED".equals(entry.getBoardingStatus())
+                    && !onboardManifestService.hasBoarded(departure.getBusId(), entry.getRfidTicketId())) {
+                noShows.add(entry);
+            }
+        }
+        if (noShows.isEmpty()) {
+            return;
+        }
+        
+        List<Long> bookingIds = new ArrayList<>(noShows.size());
+        for (RFIDDto.ManifestEntry entry : noShows) {
+            bookingIds.add(entry.getBookingId());
+        }
+        Long[] missed = restTemplate.postForObject(missedUrl, bookingIds, Long[].class);
+        Set<Long> missedIds = missed != null ? new HashSet<>(Arrays.asList(missed)) : new HashSet<>();
+        
+        for (RFIDDto.ManifestEntry entry : noShows) {
+            if (missedIds.contains(entry.getBookingId())) {
+                boardingManifestService.remove(entry.getBusId(), entry.getRfidTicketId());
+                RFIDDto.PassengerAlert alert = new RFIDDto.PassengerAlert(
+                    entry.getUserId(),
+                    "Passenger " + entry.getUserId(),
+                    entry.getRfidTicketId(),
+                    "BUS-" + entry.getBusId(),
+                    entry.getSeatNumber(),
+                    "MISSED_BOARDING",
+                    "Passenger did not board before departure - seat released"
+                );
+                messagingTemplate.convertAndSend("/topic/rfid/alerts", alert);
+            }
+        }
+    }
+}
+
@@ -0,0 +1,184 @@
+package com.smartbus2plus.rfid.service;
+
+import com.smartbus2plus.rfid.model.LostItem;
+import com.smartbus2plus.rfid.repository.LostItemRepository;
+import com.smartbus2plus.rfid.util.OpenAddressingIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Matches tag reads against the registered lost items held in memory.
+ * Sightings are coalesced per tag (latest wins) and written in one batch per interval,
+ * so reads of lost tags cost no database round trip. Sightings stay pending until the
+ * batch commits; a sighting on an unknown bus keeps the item's previous bus, and one the
+ * table still refuses is written on its own and dropped rather than retried forever.
+ */
+@Service
+public class LostItemTracker {
+    
+    private static final int MAX_LOCATION_LENGTH = 100;
+    
+    @Autowired
+    private LostItemRepository lostItemRepository;
+    
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    private volatile OpenAddressingIndex<Long> lostTags = new OpenAddressingIndex<>();
+    private final Map<String, Sighting> pending = new ConcurrentHashMap<>();
+    private Counter skippedSightings;
+    
+    @PostConstruct
+    public void init() {
+        skippedSightings = Counter.builder("rfid.lost-items.sightings.skipped")
+                .description("Sightings dropped because the lost_items row refused them")
+                .register(meterRegistry);
+    }
+    
+    /**
+     * Records a read if the tag belongs to a lost item; returns false for any other tag
+     */
+    public boolean observe(Long busId, String tagId, String location) {
+        if (!lostTags.containsKey(tagId)) {
+            return false;
+        }
+        // Readers send free text; last_seen_location holds 100 characters
+        if (location != null && location.length() > MAX_LOCATION_LENGTH) {
+            location = location.substring(0, MAX_LOCATION_LENGTH);
+        }
+        pending.merge(tagId, new Sighting(busId, location, LocalDateTime.now()),
+                (current, latest) -> latest.time.isAfter(current.time) ? latest : current);
+        return true;
+    }
+    
+    public LostItem registerLostItem(LostItem lostItem) {
+        lostItem.setStatus(LostItem.Status.LOST);
+        LostItem saved = lostItemRepository.save(lostItem);
+        lostTags.put(saved.getRfidTagId(), saved.getId());
+        return saved;
+    }
+    
+    public LostItem updateStatus(Long id, LostItem.Status status) {
+        return lostItemRepository.findById(id)
+                .map(item -> {
+                    item.setStatus(status);
+                    if (status == LostItem.Status.LOST) {
+                        lostTags.put(item.getRfidTagId(), item.getId());
+                    } else {
+                        lostTags.remove(item.getRfidTagId());
+                    }
+                    return lostItemRepository.save(item);
+                })
+                .orElseThrow(() -> new RuntimeException("Lost item not found"));
+    }
+    
+    public LostItem getByTag(String tagId) {
+        return lostItemRepository.findByRfidTagId(tagId)
+                .orElseThrow(() -> new RuntimeException("Lost item not found"));
+    }
+    
+    public List<LostItem> getLostItems() {
+        return lostItemRepository.findByStatus(LostItem.Status.LOST);
+    }
+    
+    @Scheduled(fixedRateString = "${rfid.lost-items.refresh-interval-ms:60000}")
+    public void refresh() {
+        List<LostItem> items = lostItemRepository.findByStatus(LostItem.Status.LOST);
+        OpenAddressingIndex<Long> loaded = new OpenAddressingIndex<>(items.size());
+        for (LostItem item : items) {
+            loaded.put(item.getRfidTagId(), item.getId());
+        }
+        lostTags = loaded;
+    }
+    
+    @Scheduled(fixedDelayString = "${rfid.lost-items.flush-interval-ms:5000}")
+    public void flushSightings() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Map<String, Sighting> batch = new HashMap<>(pending);
+        List<LostItem> items;
+        try {
+            items = transactionTemplate.execute(status -> write(batch));
+        } catch (DataIntegrityViolationException e) {
+            // Retrying the batch would fail the same way: write each tag on its own and skip the ones refused
+            items = new ArrayList<>();
+            for (Map.Entry<String, Sighting> entry : batch.entrySet()) {
+                try {
+                    items.addAll(transactionTemplate.execute(status -> write(Map.of(entry.getKey(), entry.getValue()))));
+                } catch (DataIntegrityViolationException refused) {
+                    skippedSightings.increment();
+                }
+            }
+        }
+        
+        // Only remove what was written or refused; a newer sighting that raced in stays for the next flush.
+        // Any other failure leaves the whole batch pending for the next flush.
+        batch.forEach(pending::remove);
+        for (LostItem item : items) {
+            messagingTemplate.convertAndSend("/topic/rfid/lost-items", item);
+        }
+    }
+    
+    private List<LostItem> write(Map<String, Sighting> batch) {
+        // Reader-supplied bus IDs that are not in buses would fail the whole batch on the foreign key
+        Set<Long> busIds = batch.values().stream()
+                .map(sighting -> sighting.busId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<Long> knownBusIds = busIds.isEmpty()
+                ? Set.of() : new HashSet<>(lostItemRepository.findExistingBusIds(busIds));
+        
+        // One select and one batched update for every tag seen in the interval
+        List<LostItem> items = lostItemRepository.findByRfidTagIdIn(batch.keySet());
+        for (LostItem item : items) {
+            Sighting sighting = batch.get(item.getRfidTagId());
+            if (item.getLastSeenTime() == null || sighting.time.isAfter(item.getLastSeenTime())) {
+                if (sighting.busId == null || knownBusIds.contains(sighting.busId)) {
+                    item.setLastSeenBusId(sighting.busId);
+                }
+                item.setLastSeenLocation(sighting.location);
+                item.setLastSeenTime(sighting.time);
+            }
+        }
+        lostItemRepository.saveAllAndFlush(items);
+        return items;
+    }
+    
+    private static final class Sighting {
+        private final Long busId;
+        private final String location;
+        private final LocalDateTime time;
+        
+        Sighting(Long busId, String location, LocalDateTime time) {
+            this.busId = busId;
+            this.location = location;
+            this.time = time;
+        }
+    }
+}
+
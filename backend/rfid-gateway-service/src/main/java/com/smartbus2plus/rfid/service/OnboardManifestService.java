@@ -0,0 +1,209 @@
+package com.smartbus2plus.rfid.service;
+
+import com.smartbus2plus.rfid.dto.RFIDDto;
+import com.smartbus2plus.rfid.model.RFIDEvent;
+import com.smartbus2plus.rfid.repository.RFIDEventRepository;
+import com.smartbus2plus.rfid.util.OpenAddressingIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Live per-bus list of passengers currently onboard, maintained from BOARDING and
+ * ALIGHTING scans. Every change is pushed to /topic/rfid/bus/{busId} as a sequenced
+ * delta; clients load a snapshot once and apply deltas instead of polling.
+ * Passengers with no alighting scan expire at the daily rollover; who boarded is kept
+ * per scan date for today and yesterday, so departures around midnight still see it.
+ */
+@Service
+public class OnboardManifestService {
+    
+    @Autowired
+    private RFIDEventRepository rfidEventRepository;
+    
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+    
+    @Autowired
+    private BoardingManifestService boardingManifestService;
+    
+    @Autowired
+    private RFIDEventLog rfidEventLog;
+    
+    @Autowired
+    private RFIDEventWriter rfidEventWriter;
+    
+    private final Map<Long, BusOnboard> buses = new ConcurrentHashMap<>();
+    private volatile boolean rebuilt;
+    
+    public boolean isOnboard(Long busId, String ticketId) {
+        BusOnboard bus = buses.get(busId);
+        return bus != null && bus.passengers.containsKey(ticketId);
+    }
+    
+    /**
+     * Whether the ticket has boarded this bus today or yesterday, even if it has since alighted
+     */
+    public boolean hasBoarded(Long busId, String ticketId) {
+        BusOnboard bus = buses.get(busId);
+        if (bus == null) {
+            return false;
+        }
+        for (OpenAddressingIndex<LocalDateTime> boarded : bus.boarded.values()) {
+            if (boarded.containsKey(ticketId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * False until today's events have been replayed after startup
+     */
+    public boolean isRebuilt() {
+        return rebuilt;
+    }
+    
+    public int getOnboardCount(Long busId) {
+        BusOnboard bus = buses.get(busId);
+        return bus != null ? bus.passengers.size() : 0;
+    }
+    
+    public RFIDDto.OnboardManifest getOnboard(Long busId) {
+        BusOnboard bus = buses.get(busId);
+        if (bus == null) {
+            return new RFIDDto.OnboardManifest(busId, 0, Collections.emptyList());
+        }
+        synchronized (bus) {
+            return new RFIDDto.OnboardManifest(busId, bus.sequence, bus.passengers.values());
+        }
+    }
+    
+    /**
+     * Applies a successful BOARDING or ALIGHTING event and publishes the resulting delta
+     */
+    public void apply(RFIDEvent event, String seatNumber) {
+        BusOnboard bus = buses.computeIfAbsent(event.getBusId(), id -> new BusOnboard());
+        // Publish under the bus lock so deltas leave in sequence order
+        synchronized (bus) {
+            RFIDDto.OnboardDelta delta = update(event, seatNumber);
+            if (delta != null) {
+                messagingTemplate.convertAndSend("/topic/rfid/bus/" + event.getBusId(), delta);
+            }
+        }
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        // Replay boardings and alightings since yesterday in order; no deltas are published
+        LocalDateTime startOfDay = LocalDate.now().atStartOfDay();
+        LocalDateTime since = startOfDay.minusDays(1);
+        // Taken first: whatever leaves the writer after this is in the log or table read below
+        List<RFIDEvent> unstored = rfidEventWriter.getUnstoredEvents();
+        
+        // A batch can be in both sources while it is being stored, so events are keyed as the writer matches them
+        Map<String, RFIDEvent> events = new LinkedHashMap<>();
+        Consumer<RFIDEvent> collect = event -> {
+            if (Boolean.TRUE.equals(event.getSuccess()) && !event.getEventTime().isBefore(since)) {
+                events.putIfAbsent(RFIDEventWriter.storageKey(event), event);
+            }
+        };
+        if (rfidEventLog.covers(since)) {
+            rfidEventLog.replaySince(since, collect);
+        } else {
+            // Log retention no longer reaches back that far, or it has a gap; fall back to the table
+            rfidEventRepository.findByEventTimeAfterAndSuccessTrueOrderByEventTimeAsc(since).forEach(collect);
+        }
+        // Still in WAL segments from before a restart, or queued since
+        unstored.forEach(collect);
+        
+        List<RFIDEvent> ordered = new ArrayList<>(events.values());
+        ordered.sort(Comparator.comparing(RFIDEvent::getEventTime));
+        for (RFIDEvent event : ordered) {
+            update(event, null);
+        }
+        // Yesterday's passengers only count as boarded; they are not onboard any more
+        for (BusOnboard bus : buses.values()) {
+            synchronized (bus) {
+                for (RFIDDto.OnboardPassenger passenger : bus.passengers.values()) {
+                    if (passenger.getBoardedAt().isBefore(startOfDay)) {
+                        bus.passengers.remove(passenger.getTicketId());
+                    }
+                }
+            }
+        }
+        rebuilt = true;
+    }
+    
+    @Scheduled(cron = "${rfid.manifest.rollover-cron:5 0 0 * * *}")
+    public void rollover() {
+        LocalDate today = LocalDate.now();
+        LocalDateTime startOfDay = today.atStartOfDay();
+        for (Map.Entry<Long, BusOnboard> entry : buses.entrySet()) {
+            BusOnboard bus = entry.getValue();
+            synchronized (bus) {
+                // Yesterday's boardings stay until departures just before midnight have been judged
+                bus.boarded.keySet().removeIf(date -> date.isBefore(today.minusDays(1)));
+                // Nobody rides across midnight: a missing tap-off must not keep them onboard for good
+                for (RFIDDto.OnboardPassenger passenger : bus.passengers.values()) {
+                    if (passenger.getBoardedAt().isBefore(startOfDay)) {
+                        bus.passengers.remove(passenger.getTicketId());
+                        messagingTemplate.convertAndSend("/topic/rfid/bus/" + entry.getKey(), new RFIDDto.OnboardDelta(
+                            entry.getKey(), ++bus.sequence, "EXPIRED", passenger, bus.passengers.size()));
+                    }
+                }
+            }
+        }
+    }
+    
+    private RFIDDto.OnboardDelta update(RFIDEvent event, String seatNumber) {
+        BusOnboard bus = buses.computeIfAbsent(event.getBusId(), id -> new BusOnboard());
+        synchronized (bus) {
+            String action;
+            RFIDDto.OnboardPassenger passenger;
+            if (event.getEventType() == RFIDEvent.EventType.BOARDING) {
+                if (seatNumber == null) {
+                    RFIDDto.ManifestEntry ticket = boardingManifestService.lookup(event.getBusId(), event.getTicketId());
+                    seatNumber = ticket != null ? ticket.getSeatNumber() : null;
+                }
+                passenger = new RFIDDto.OnboardPassenger(
+                    event.getTicketId(), event.getPassengerId(), seatNumber, event.getEventTime());
+                bus.passengers.put(event.getTicketId(), passenger);
+                bus.boarded.computeIfAbsent(event.getEventTime().toLocalDate(), date -> new OpenAddressingIndex<>(64))
+                        .put(event.getTicketId(), event.getEventTime());
+                action = "BOARDED";
+            } else if (event.getEventType() == RFIDEvent.EventType.ALIGHTING) {
+                passenger = bus.passengers.remove(event.getTicketId());
+                if (passenger == null) {
+                    return null;
+                }
+                action = "ALIGHTED";
+            } else {
+                return null;
+            }
+            return new RFIDDto.OnboardDelta(event.getBusId(), ++bus.sequence, action, passenger, bus.passengers.size());
+        }
+    }
+    
+    private static final class BusOnboard {
+        private final OpenAddressingIndex<RFIDDto.OnboardPassenger> passengers = new OpenAddressingIndex<>(64);
+        // Scan date -> ticket -> boarding time
+        private final Map<LocalDate, OpenAddressingIndex<LocalDateTime>> boarded = new ConcurrentHashMap<>();
+        private long sequence;
+    }
+}
+
@@ -0,0 +1,196 @@
+package com.smartbus2plus.rfid.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartbus2plus.rfid.dto.RFIDDto;
+import com.smartbus2plus.rfid.model.RFIDEvent;
+import com.smartbus2plus.rfid.util.EventLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Local, replayable log of stored RFID events.
+ * Events are appended in storage order once they are in rfid_events, so audits and state
+ * rebuilds can replay from an offset or a point in time without scanning the table.
+ * Appending is best effort, because the table is the record of truth. A batch that cannot
+ * be logged leaves a gap, and the gap is saved next to the segments. covers() then reports
+ * the log as incomplete until the missing events are older than the requested time.
+ */
+@Service
+public class RFIDEventLog {
+    
+    private static final int REPLAY_BATCH = 1000;
+    private static final String GAP_FILE = "gap";
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${rfid.event-log.directory:data/rfid-log}")
+    private String directory;
+    
+    @Value("${rfid.event-log.segment-bytes:67108864}")
+    private int segmentBytes;
+    
+    @Value("${rfid.event-log.max-segments:64}")
+    private int maxSegments;
+    
+    private EventLog log;
+    
+    // Latest event time, in epoch millis, of any batch that failed to be logged
+    private volatile long gapUntil = Long.MIN_VALUE;
+    
+    private Counter appendFailures;
+    
+    @PostConstruct
+    public void open() throws IOException {
+        log = new EventLog(Paths.get(directory), segmentBytes, maxSegments);
+        Path gapFile = Paths.get(directory, GAP_FILE);
+        if (Files.exists(gapFile)) {
+            gapUntil = Long.parseLong(Files.readString(gapFile, StandardCharsets.UTF_8).trim());
+        }
+        appendFailures = Counter.builder("rfid.event-log.append.failures")
+                .description("Stored event batches that could not be added to the event log")
+                .register(meterRegistry);
+    }
+    
+    @PreDestroy
+    public void close() throws IOException {
+        log.flush();
+        log.close();
+    }
+    
+    /**
+     * Appends a stored batch and forces it to disk once; on failure records a gap instead of throwing
+     */
+    public void append(List<RFIDEvent> events) {
+        try {
+            for (RFIDEvent event : events) {
+                log.append(toMillis(event.getEventTime()), objectMapper.writeValueAsBytes(event));
+            }
+            log.flush();
+        } catch (IOException | RuntimeException e) {
+            // Disk full or an oversized record: the events are stored, only the log misses them
+            appendFailures.increment();
+            recordGap(events);
+        }
+    }
+    
+    /**
+     * True if the log still holds everything stored since the given time, with no gaps
+     */
+    public boolean covers(LocalDateTime since) {
+        long sinceMillis = toMillis(since);
+        return log.getStartTimestamp() <= sinceMillis && gapUntil < sinceMillis;
+    }
+    
+    public long offsetAt(LocalDateTime time) {
+        return log.offsetForTimestamp(toMillis(time));
+    }
+    
+    public List<RFIDDto.LoggedEvent> read(long fromOffset, int limit) {
+        List<RFIDDto.LoggedEvent> events = new ArrayList<>();
+        for (EventLog.Record record : log.read(fromOffset, limit)) {
+            events.add(decode(record));
+        }
+        return events;
+    }
+    
+    /**
+     * Feeds every event logged from the given time up to now, in log order
+     */
+    public void replaySince(LocalDateTime since, Consumer<RFIDEvent> consumer) {
+        replay(offsetAt(since), Long.MAX_VALUE, logged -> consumer.accept(logged.getEvent()));
+    }
+    
+    /**
+     * Who was onboard the bus at the given moment, rebuilt from that day's events
+     */
+    public RFIDDto.OnboardManifest getOnboardAt(Long busId, LocalDateTime at) {
+        Map<String, RFIDDto.OnboardPassenger> onboard = new LinkedHashMap<>();
+        long[] lastOffset = { -1 };
+        replay(offsetAt(at.toLocalDate().atStartOfDay()), toMillis(at), logged -> {
+            RFIDEvent event = logged.getEvent();
+            lastOffset[0] = logged.getOffset();
+            if (busId.equals(event.getBusId()) && Boolean.TRUE.equals(event.getSuccess())) {
+                if (event.getEventType() == RFIDEvent.EventType.BOARDING) {
+                    onboard.put(event.getTicketId(), new RFIDDto.OnboardPassenger(
+                        event.getTicketId(), event.getPassengerId(), null, event.getEventTime()));
+                } else if (event.getEventType() == RFIDEvent.EventType.ALIGHTING) {
+                    onboard.remove(event.getTicketId());
+                }
+            }
+        });
+        return new RFIDDto.OnboardManifest(busId, lastOffset[0], new ArrayList<>(onboard.values()));
+    }
+    
+    private void replay(long fromOffset, long untilMillis, Consumer<RFIDDto.LoggedEvent> consumer) {
+        long offset = fromOffset;
+        while (true) {
+            List<EventLog.Record> records = log.read(offset, REPLAY_BATCH);
+            for (EventLog.Record record : records) {
+                if (record.getTimestamp() > untilMillis) {
+                    return;
+                }
+                consumer.accept(decode(record));
+            }
+            if (records.size() < REPLAY_BATCH) {
+                return;
+            }
+            offset = records.get(records.size() - 1).getOffset() + 1;
+        }
+    }
+    
+    private synchronized void recordGap(List<RFIDEvent> events) {
+        long latest = gapUntil;
+        for (RFIDEvent event : events) {
+            latest = Math.max(latest, toMillis(event.getEventTime()));
+        }
+        gapUntil = latest;
+        try {
+            // Written beside the segments so a restart still knows the log is incomplete
+            Path gapFile = Paths.get(directory, GAP_FILE);
+            Path temporary = Paths.get(directory, GAP_FILE + ".tmp");
+            Files.writeString(temporary, Long.toString(latest), StandardCharsets.UTF_8);
+            Files.move(temporary, gapFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // The gap still holds for this process; after a restart covers() may trust the log again
+        }
+    }
+    
+    private RFIDDto.LoggedEvent decode(EventLog.Record record) {
+        try {
+            RFIDEvent event = objectMapper.readValue(record.getPayload(), RFIDEvent.class);
+            return new RFIDDto.LoggedEvent(record.getOffset(),
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(record.getTimestamp()), ZoneId.systemDefault()), event);
+        } catch (IOException e) {
+            throw new RuntimeException("Corrupt event log record at offset " + record.getOffset(), e);
+        }
+    }
+    
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
+
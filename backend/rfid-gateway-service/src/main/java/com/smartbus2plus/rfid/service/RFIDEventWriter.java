@@ -0,0 +1,356 @@
+package com.smartbus2plus.rfid.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.smartbus2plus.rfid.model.RFIDEvent;
+import com.smartbus2plus.rfid.repository.RFIDEventRepository;
+import com.smartbus2plus.rfid.util.WriteAheadLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Group-commit writer for RFID events.
+ * A scan is acknowledged once its event is durable in the local write-ahead log; a
+ * background thread then seals the queued events into a batch, stores each batch in one
+ * transaction and deletes the WAL segment it came from. Segments left by a crash are
+ * replayed at startup.
+ * Kafka and WebSocket fan-out runs on its own thread as soon as a batch is sealed, so a
+ * database outage does not hold it up. While storage is down the backlog is capped, and
+ * scans beyond it are refused rather than buffered without limit. A batch the table
+ * refuses on a constraint is stored row by row, and rows that still fail are moved to
+ * a quarantine file so they cannot hold up the batches behind them.
+ */
+@Service
+public class RFIDEventWriter {
+    
+    @Autowired
+    private RFIDEventRepository rfidEventRepository;
+    
+    @Autowired
+    private KafkaTemplate<String, Object> kafkaTemplate;
+    
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private RFIDEventLog rfidEventLog;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${rfid.wal.directory:data/rfid-wal}")
+    private String walDirectory;
+    
+    @Value("${rfid.wal.fsync:true}")
+    private boolean fsync;
+    
+    @Value("${rfid.writer.flush-interval-ms:50}")
+    private long flushIntervalMs;
+    
+    @Value("${rfid.writer.retry-backoff-ms:5000}")
+    private long retryBackoffMs;
+    
+    @Value("${rfid.writer.max-backlog:100000}") // events logged but not yet stored
+    private int maxBacklog;
+    
+    @Value("${rfid.writer.fanout-queue-capacity:1000}") // sealed batches waiting for fan-out
+    private int fanoutQueueCapacity;
+    
+    private WriteAheadLog wal;
+    private Thread writerThread;
+    private volatile boolean running;
+    private ThreadPoolExecutor fanout;
+    private final AtomicInteger backlog = new AtomicInteger();
+    private Counter rejectedEvents;
+    private Counter fanoutFailures;
+    private Counter quarantinedEvents;
+    private Path quarantineFile;
+    
+    // Events accepted since the active segment was opened; guarded by the WAL's monitor
+    private List<RFIDEvent> queued = new ArrayList<>();
+    // Sealed segments not yet stored and logged, oldest first; only the writer thread removes them
+    private final Deque<Batch> pending = new ConcurrentLinkedDeque<>();
+    
+    @PostConstruct
+    public void start() throws IOException {
+        rejectedEvents = Counter.builder("rfid.writer.rejected")
+                .description("Scans refused because the storage backlog was full")
+                .register(meterRegistry);
+        fanoutFailures = Counter.builder("rfid.writer.fanout.failures")
+                .description("Kafka or WebSocket sends that failed or were dropped")
+                .register(meterRegistry);
+        quarantinedEvents = Counter.builder("rfid.writer.quarantined")
+                .description("Events the table refused on a constraint, moved to the quarantine file")
+                .register(meterRegistry);
+        Gauge.builder("rfid.writer.backlog", backlog, AtomicInteger::get)
+                .description("Events logged but not yet stored")
+                .register(meterRegistry);
+        
+        fanout = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(fanoutQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "rfid-event-fanout");
+                    thread.setDaemon(true);
+                    return thread;
+                }, (task, executor) -> fanoutFailures.increment());
+        
+        wal = new WriteAheadLog(Paths.get(walDirectory), fsync);
+        quarantineFile = Paths.get(walDirectory).resolve("quarantine.jsonl");
+        for (Path segment : wal.getRecoveredSegments()) {
+            List<RFIDEvent> events = new ArrayList<>();
+            for (byte[] record : WriteAheadLog.readRecords(segment)) {
+                events.add(objectMapper.readValue(record, RFIDEvent.class));
+            }
+            pending.add(new Batch(segment, events, true));
+            backlog.addAndGet(events.size());
+            // The crash may have come before these were published; consumers see them at least once
+            publish(events);
+        }
+        
+        running = true;
+        writerThread = new Thread(this::run, "rfid-event-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+    
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        running = false;
+        writerThread.interrupt();
+        writerThread.join(10000);
+        fanout.shutdown();
+        fanout.awaitTermination(5, TimeUnit.SECONDS);
+        // Anything still unsaved stays in the WAL and is replayed on the next start
+        wal.close();
+    }
+    
+    /**
+     * Logs the event durably and queues it for storage; returns once it survives a crash.
+     * Throws a 503 when storage has fallen too far behind.
+     */
+    public void submit(RFIDEvent event) {
+        if (backlog.get() >= maxBacklog) {
+            rejectedEvents.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "RFID event backlog is full");
+        }
+        try {
+            byte[] record = objectMapper.writeValueAsBytes(event);
+            WriteAheadLog.Position position;
+            synchronized (wal) {
+                position = wal.append(record);
+                queued.add(event);
+                backlog.incrementAndGet();
+            }
+            wal.sync(position);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to log RFID event", e);
+        }
+    }
+    
+    /**
+     * Events accepted but not yet both stored and in the event log, oldest first. Anything
+     * missing from this snapshot can already be read back from the table and the log.
+     */
+    public List<RFIDEvent> getUnstoredEvents() {
+        List<RFIDEvent> events = new ArrayList<>();
+        synchronized (wal) {
+            // Sealing moves events from queued to pending under this lock, so none is skipped
+            for (Batch batch : pending) {
+                events.addAll(batch.events);
+            }
+            events.addAll(queued);
+        }
+        return events;
+    }
+    
+    /**
+     * Identifies an event across the WAL, the table and the log; replays match events by it
+     */
+    public static String storageKey(RFIDEvent event) {
+        return event.getBusId() + "|" + event.getRfidReaderId() + "|" + event.getTicketId() + "|" + event.getEventTime();
+    }
+    
+    private void run() {
+        while (running) {
+            try {
+                Thread.sleep(flushIntervalMs);
+                while (flush()) {
+                    // Keep draining until caught up
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException | IOException e) {
+                // Database or broker unavailable: the batch stays pending and is retried
+                try {
+                    Thread.sleep(retryBackoffMs);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+    
+    private boolean flush() throws IOException {
+        // Seal even while older batches are stuck, so the active segment stays batch-sized
+        List<RFIDEvent> sealed = null;
+        synchronized (wal) {
+            if (!queued.isEmpty()) {
+                // Seal and swap together so the segment holds exactly the drained events
+                pending.add(new Batch(wal.seal(), queued, false));
+                sealed = queued;
+                queued = new ArrayList<>();
+            }
+        }
+        if (sealed != null) {
+            publish(sealed);
+        }
+        if (pending.isEmpty()) {
+            return false;
+        }
+        
+        Batch batch = pending.peek();
+        List<RFIDEvent> events = batch.recovered ? unsaved(batch.events) : batch.events;
+        Set<RFIDEvent> quarantined = Collections.newSetFromMap(new IdentityHashMap<>());
+        // One transaction for the whole batch
+        try {
+            rfidEventRepository.saveAll(events);
+        } catch (DataIntegrityViolationException e) {
+            // Retrying the batch would fail the same way: isolate the rows the table refuses
+            resetIds(events);
+            quarantined.addAll(saveEach(events));
+        } catch (RuntimeException e) {
+            resetIds(events);
+            throw e;
+        }
+        try {
+            wal.delete(batch.segment);
+        } finally {
+            // Best effort once stored: a failure is recorded as a gap in the log, never retried here.
+            // A recovered batch is logged whole, since the log is written only after its segment is gone.
+            rfidEventLog.append(quarantined.isEmpty() ? batch.events
+                    : batch.events.stream().filter(event -> !quarantined.contains(event)).toList());
+            // Dropped only once logged, so getUnstoredEvents() and the log never both miss an event
+            pending.poll();
+            backlog.addAndGet(-batch.events.size());
+        }
+        return true;
+    }
+    
+    /**
+     * Stores each event in its own transaction and returns the ones the table refused
+     */
+    private List<RFIDEvent> saveEach(List<RFIDEvent> events) throws IOException {
+        List<RFIDEvent> refused = new ArrayList<>();
+        for (RFIDEvent event : events) {
+            try {
+                rfidEventRepository.save(event);
+            } catch (DataIntegrityViolationException e) {
+                event.setId(null);
+                quarantine(event);
+                refused.add(event);
+            } catch (RuntimeException e) {
+                // Storage failed for another reason; rows already saved keep their IDs and are merged on the retry
+                event.setId(null);
+                throw e;
+            }
+        }
+        return refused;
+    }
+    
+    private void quarantine(RFIDEvent event) throws IOException {
+        byte[] line = (objectMapper.writeValueAsString(event) + "\n").getBytes(StandardCharsets.UTF_8);
+        Files.write(quarantineFile, line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        quarantinedEvents.increment();
+    }
+    
+    private static void resetIds(List<RFIDEvent> events) {
+        // Identity values assigned before the rollback must not make the retry an update
+        for (RFIDEvent event : events) {
+            event.setId(null);
+        }
+    }
+    
+    private void publish(List<RFIDEvent> events) {
+        fanout.execute(() -> {
+            // Each send fails on its own, so one bad send does not lose the rest of the batch
+            for (RFIDEvent event : events) {
+                try {
+                    kafkaTemplate.send("rfid-events", event)
+                            .whenComplete((result, error) -> {
+                                if (error != null) {
+                                    fanoutFailures.increment();
+                                }
+                            });
+                } catch (RuntimeException e) {
+                    fanoutFailures.increment();
+                }
+                send("/topic/rfid/events", event);
+                send("/topic/rfid/bus/" + event.getBusId(), event);
+            }
+        });
+    }
+    
+    private void send(String destination, RFIDEvent event) {
+        try {
+            messagingTemplate.convertAndSend(destination, event);
+        } catch (RuntimeException e) {
+            fanoutFailures.increment();
+        }
+    }
+    
+    private List<RFIDEvent> unsaved(List<RFIDEvent> events) {
+        // A crash between saving and deleting the segment would otherwise insert duplicates
+        List<RFIDEvent> result = new ArrayList<>(events.size());
+        for (RFIDEvent event : events) {
+            if (!rfidEventRepository.existsByBusIdAndRfidReaderIdAndTicketIdAndEventTime(
+                    event.getBusId(), event.getRfidReaderId(), event.getTicketId(), event.getEventTime())) {
+                result.add(event);
+            }
+        }
+        return result;
+    }
+    
+    private static final class Batch {
+        private final Path segment;
+        private final List<RFIDEvent> events;
+        private final boolean recovered;
+        
+        Batch(Path segment, List<RFIDEvent> events, boolean recovered) {
+            this.segment = segment;
+            this.events = events;
+            this.recovered = recovered;
+        }
+    }
+}
+
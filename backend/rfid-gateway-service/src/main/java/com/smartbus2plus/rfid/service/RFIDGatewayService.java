@@ -3,15 +3,25 @@ package com.smartbus2plus.rfid.service;
 import com.smartbus2plus.rfid.dto.RFIDDto;
 import com.smartbus2plus.rfid.model.RFIDEvent;
 import com.smartbus2plus.rfid.repository.RFIDEventRepository;
+import com.smartbus2plus.rfid.util.DedupWindow;
+import com.smartbus2plus.rfid.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * RFID Gateway service for SmartBus2+ smart boarding system
@@ -19,26 +29,129 @@ import java.util.Random;
 @Service
 public class RFIDGatewayService {
     
+    // Length of the rfid_reader_id, ticket_id and location columns
+    private static final int MAX_FIELD_LENGTH = 50;
+    
     @Autowired
     private RFIDEventRepository rfidEventRepository;
     
     @Autowired
-    private KafkaTemplate<String, Object> kafkaTemplate;
+    private RFIDEventWriter rfidEventWriter;
     
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
     
+    @Autowired
+    private BoardingManifestService boardingManifestService;
+    
+    @Autowired
+    private BoardingStatusTracker boardingStatusTracker;
+    
+    @Autowired
+    private OnboardManifestService onboardManifestService;
+    
+    @Autowired
+    private LostItemTracker lostItemTracker;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${rfid.reader.rate-limit.burst:50}") // a full coach boarding through one door
+    private double readerBurst;
+    
+    @Value("${rfid.reader.rate-limit.per-second:10}")
+    private double readerScansPerSecond;
+    
+    @Value("${rfid.dedup.window-ms:2000}")
+    private long dedupWindowMs;
+    
+    @Value("${rfid.dedup.buckets:4}")
+    private int dedupBuckets;
+    
+    @Value("${rfid.dedup.max-keys-per-bucket:10000}")
+    private int dedupMaxKeysPerBucket;
+    
     private final Random random = new Random();
+    private final Map<String, TokenBucket> readerLimits = new ConcurrentHashMap<>();
+    private DedupWindow<CompletableFuture<RFIDDto.RFIDScanResponse>> recentScans;
+    private Counter duplicateScans;
+    private Counter uniqueScans;
+    private volatile Set<Long> knownBuses = Set.of();
+    
+    @PostConstruct
+    public void init() {
+        recentScans = new DedupWindow<>(dedupWindowMs, dedupBuckets, dedupMaxKeysPerBucket);
+        duplicateScans = Counter.builder("rfid.scans.dedup").tag("outcome", "duplicate")
+                .description("Repeated reads of a tag by the same reader within the dedup window")
+                .register(meterRegistry);
+        uniqueScans = Counter.builder("rfid.scans.dedup").tag("outcome", "unique")
+                .register(meterRegistry);
+    }
     
     public RFIDDto.RFIDScanResponse processRFIDScan(RFIDDto.RFIDScanRequest scanRequest) {
-        // Simulate RFID ticket validation
-        boolean isValidTicket = validateTicket(scanRequest.getTicketId());
+        // Checked before the WAL: a row the table would refuse must never reach the writer
+        String invalid = validate(scanRequest);
+        if (invalid != null) {
+            return rejected(invalid, RFIDDto.ScanResult.INVALID_REQUEST);
+        }
+        
+        // Readers report the same tag several times per second: answer repeats with the first result
+        String dedupKey = scanRequest.getRfidReaderId() + "|" + scanRequest.getTicketId();
+        // Claimed before validating, so a concurrent repeat waits for this result instead of recording twice
+        CompletableFuture<RFIDDto.RFIDScanResponse> result = new CompletableFuture<>();
+        CompletableFuture<RFIDDto.RFIDScanResponse> previous =
+                recentScans.putIfAbsent(dedupKey, result, System.currentTimeMillis());
+        if (previous != null) {
+            duplicateScans.increment();
+            return previous.join();
+        }
+        uniqueScans.increment();
+        
+        RFIDDto.RFIDScanResponse response;
+        try {
+            response = validateAndRecord(scanRequest);
+        } catch (RuntimeException e) {
+            recentScans.remove(dedupKey, result);
+            result.completeExceptionally(e);
+            throw e;
+        }
+        if (response.getResult() == RFIDDto.ScanResult.RATE_LIMITED) {
+            // Not remembered: the next read is evaluated afresh once the reader has tokens again
+            recentScans.remove(dedupKey, result);
+        }
+        result.complete(response);
+        return response;
+    }
+    
+    private RFIDDto.RFIDScanResponse validateAndRecord(RFIDDto.RFIDScanRequest scanRequest) {
+        // Tags of registered lost items are sightings, not tickets; written in coalesced batches
+        if (lostItemTracker.observe(scanRequest.getBusId(), scanRequest.getTicketId(), scanRequest.getLocation())) {
+            return rejected("Lost item tag recorded", RFIDDto.ScanResult.LOST_ITEM);
+        }
+        
+        // Cheap in-memory rejections first: nothing is persisted or broadcast for these
+        if (!readerLimits.computeIfAbsent(String.valueOf(scanRequest.getRfidReaderId()),
+                id -> new TokenBucket(readerBurst, readerScansPerSecond)).tryAcquire()) {
+            return rejected("Reader rate limit exceeded", RFIDDto.ScanResult.RATE_LIMITED);
+        }
+        if (!boardingManifestService.mightBeValid(scanRequest.getTicketId())) {
+            return rejected("Unknown ticket", RFIDDto.ScanResult.UNKNOWN_TICKET);
+        }
+        
+        // Validate against the local manifest; no booking-service round trip per scan
+        RFIDDto.ManifestEntry ticket = boardingManifestService.lookup(scanRequest.getBusId(), scanRequest.getTicketId());
+        boolean isValidTicket = ticket != null;
         
         RFIDEvent.EventType eventType;
         boolean success;
         String message;
         
-        if (isValidTicket) {
+        if (isValidTicket && onboardManifestService.isOnboard(scanRequest.getBusId(), scanRequest.getTicketId())) {
+            // A second tap by a passenger already onboard is the tap-off
+            eventType = RFIDEvent.EventType.ALIGHTING;
+            success = true;
+            message = "Alighting recorded";
+        } else if (isValidTicket) {
             eventType = RFIDEvent.EventType.BOARDING;
             success = true;
             message = "Boarding successful";
@@ -53,49 +166,77 @@ public class RFIDGatewayService {
             scanRequest.getBusId(),
             scanRequest.getRfidReaderId(),
             scanRequest.getTicketId(),
-            getPassengerIdFromTicket(scanRequest.getTicketId()),
+            isValidTicket ? ticket.getUserId() : null,
             eventType,
             scanRequest.getLocation(),
             success
         );
         
-        event.setEventTime(LocalDateTime.now());
-        rfidEventRepository.save(event);
-        
-        // Send to Kafka
-        kafkaTemplate.send("rfid-events", event);
+        // Database precision, so a replayed event can be matched against the stored row
+        event.setEventTime(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS));
         
-        // Send to WebSocket clients
-        messagingTemplate.convertAndSend("/topic/rfid/events", event);
-        messagingTemplate.convertAndSend("/topic/rfid/bus/" + scanRequest.getBusId(), event);
+        // Acknowledge once the event is in the local WAL; storage, Kafka and WebSocket
+        // fan-out happen in the writer's next batch
+        rfidEventWriter.submit(event);
+        boardingStatusTracker.record(event);
+        if (success) {
+            onboardManifestService.apply(event, ticket.getSeatNumber());
+        }
         
         // Create response
         RFIDDto.RFIDScanResponse response = new RFIDDto.RFIDScanResponse(success, message, eventType);
+        response.setResult(success ? RFIDDto.ScanResult.ACCEPTED : RFIDDto.ScanResult.INVALID_TICKET);
         if (success) {
-            response.setPassengerId(getPassengerIdFromTicket(scanRequest.getTicketId()));
-            response.setSeatNumber(getSeatNumberFromTicket(scanRequest.getTicketId()));
+            response.setPassengerId(ticket.getUserId());
+            response.setSeatNumber(ticket.getSeatNumber());
             response.setBusNumber("BUS-" + scanRequest.getBusId());
         }
         
         return response;
     }
     
-    private boolean validateTicket(String ticketId) {
-        // Mock ticket validation logic
-        // In real implementation, this would check against booking database
-        return ticketId != null && ticketId.length() > 5;
+    private String validate(RFIDDto.RFIDScanRequest scanRequest) {
+        if (scanRequest.getBusId() == null || isBlank(scanRequest.getRfidReaderId()) || isBlank(scanRequest.getTicketId())) {
+            return "Bus, reader and ticket are required";
+        }
+        if (scanRequest.getRfidReaderId().length() > MAX_FIELD_LENGTH || scanRequest.getTicketId().length() > MAX_FIELD_LENGTH
+                || (scanRequest.getLocation() != null && scanRequest.getLocation().length() > MAX_FIELD_LENGTH)) {
+            return "Reader, ticket and location must be at most " + MAX_FIELD_LENGTH + " characters";
+        }
+        Set<Long> buses = knownBuses;
+        // Not loaded yet: the writer quarantines anything the table refuses
+        if (!buses.isEmpty() && !buses.contains(scanRequest.getBusId())) {
+            return "Unknown bus";
+        }
+        return null;
+    }
+    
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+    
+    @Scheduled(fixedRateString = "${rfid.buses.refresh-interval-ms:60000}")
+    public void refreshKnownBuses() {
+        knownBuses = Set.copyOf(rfidEventRepository.findAllBusIds());
+    }
+    
+    private RFIDDto.RFIDScanResponse rejected(String message, RFIDDto.ScanResult result) {
+        RFIDDto.RFIDScanResponse response = new RFIDDto.RFIDScanResponse(false, message, RFIDEvent.EventType.SCAN_FAILED);
+        response.setResult(result);
+        return response;
+    }
+    
+    @Scheduled(fixedRate = 60000)
+    public void evictIdleReaderLimits() {
+        readerLimits.values().removeIf(TokenBucket::isFull);
     }
     
-    private Long getPassengerIdFromTicket(String ticketId) {
-        // Mock passenger ID extraction
-        return random.nextLong(1000) + 1;
+    public List<RFIDDto.ManifestEntry> getManifest(Long busId) {
+        return boardingManifestService.getManifest(busId);
     }
     
-    private String getSeatNumberFromTicket(String ticketId) {
-        // Mock seat number extraction
-        int row = random.nextInt(12) + 1;
-        char col = (char) ('A' + random.nextInt(4));
-        return row + String.valueOf(col);
+    public RFIDDto.OnboardManifest getOnboard(Long busId) {
+        return onboardManifestService.getOnboard(busId);
     }
     
     public List<RFIDEvent> getRFIDEventsByBus(Long busId) {
@@ -108,15 +249,8 @@ public class RFIDGatewayService {
     }
     
     public RFIDDto.BoardingStatus getBoardingStatus(Long busId) {
-        List<RFIDEvent> recentEvents = getRecentRFIDEvents(busId, 60); // Last hour
-        
-        int totalPassengers = recentEvents.size();
-        int boardedPassengers = (int) recentEvents.stream()
-            .filter(event -> event.getEventType() == RFIDEvent.EventType.BOARDING && event.getSuccess())
-            .count();
-        int missedPassengers = totalPassengers - boardedPassengers;
-        
-        return new RFIDDto.BoardingStatus(busId, "BUS-" + busId, totalPassengers, boardedPassengers, missedPassengers);
+        // Served from in-memory counters; no event scan per request
+        return boardingStatusTracker.getStatus(busId);
     }
     
     // Mock RFID scanner simulation
@@ -125,7 +259,9 @@ public class RFIDGatewayService {
         // Simulate random RFID scans for demo purposes
         if (random.nextBoolean()) {
             Long busId = (long) (random.nextInt(4) + 1);
-            String ticketId = "TICKET_" + (random.nextInt(1000) + 1);
+            // Mostly real tickets from the manifest, with the occasional unknown one
+            RFIDDto.ManifestEntry ticket = random.nextInt(10) > 0 ? boardingManifestService.sampleTicket(busId, random) : null;
+            String ticketId = ticket != null ? ticket.getRfidTicketId() : "TICKET_" + (random.nextInt(1000) + 1);
             String readerId = "READER_" + busId + "_" + (random.nextInt(3) + 1);
             String location = "boarding_gate_" + (random.nextInt(2) + 1);
             
@@ -0,0 +1,298 @@
+package com.smartbus2plus.rfid.service;
+
+import com.smartbus2plus.rfid.config.ReaderKeyProperties;
+import com.smartbus2plus.rfid.dto.RFIDDto;
+import com.smartbus2plus.rfid.util.ReaderFrame;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Binary TCP/UDP listener for RFID reader hardware, bypassing the HTTP gateway.
+ * Readers send fixed-size {@link ReaderFrame} requests and get a fixed-size reply per scan.
+ * Every frame must carry a MAC under the key configured for its reader ID, since this port has
+ * no JWT in front of it and UDP senders are trivially spoofed. Each TCP connection has its own
+ * thread and reuses pooled buffers for every frame; UDP datagrams are handed to a bounded worker
+ * pool so concurrent scans share WAL group commits, and are answered to the sender.
+ * Scans go through the same path as POST /api/rfid/scan.
+ */
+@Service
+public class ReaderProtocolServer {
+    
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    
+    @Autowired
+    private RFIDGatewayService rfidGatewayService;
+    
+    @Autowired
+    private ReaderKeyProperties readerKeys;
+    
+    @Value("${rfid.reader-protocol.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${rfid.reader-protocol.bind-address:0.0.0.0}")
+    private String bindAddress;
+    
+    @Value("${rfid.reader-protocol.port:6086}") // same port for TCP and UDP
+    private int port;
+    
+    @Value("${rfid.reader-protocol.max-connections:256}")
+    private int maxConnections;
+    
+    @Value("${rfid.reader-protocol.udp-workers:8}")
+    private int udpWorkerCount;
+    
+    @Value("${rfid.reader-protocol.udp-queue-capacity:1024}")
+    private int udpQueueCapacity;
+    
+    private final Queue<ByteBuffer> bufferPool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(ReaderProtocolServer::newMac);
+    private Map<String, SecretKeySpec> keys;
+    private ServerSocketChannel tcpChannel;
+    private DatagramChannel udpChannel;
+    private ExecutorService workers;
+    private ThreadPoolExecutor udpWorkers;
+    private volatile boolean running;
+    
+    @PostConstruct
+    public void start() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        keys = new HashMap<>();
+        readerKeys.getKeys().forEach((readerId, secret) ->
+                keys.put(readerId, new SecretKeySpec(Base64.getDecoder().decode(secret), MAC_ALGORITHM)));
+        
+        tcpChannel = ServerSocketChannel.open().bind(new InetSocketAddress(bindAddress, port));
+        udpChannel = DatagramChannel.open().bind(new InetSocketAddress(bindAddress, port));
+        workers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "rfid-reader-protocol");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Full queue drops the datagram; readers resend scans that get no reply
+        udpWorkers = new ThreadPoolExecutor(udpWorkerCount, udpWorkerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(udpQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "rfid-reader-udp");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        running = true;
+        workers.execute(this::acceptConnections);
+        workers.execute(this::serveDatagrams);
+    }
+    
+    @PreDestroy
+    public void stop() throws IOException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        tcpChannel.close();
+        udpChannel.close();
+        workers.shutdownNow();
+        udpWorkers.shutdownNow();
+    }
+    
+    private void acceptConnections() {
+        while (running) {
+            try {
+                SocketChannel channel = tcpChannel.accept();
+                if (connections.incrementAndGet() > maxConnections) {
+                    connections.decrementAndGet();
+                    channel.close();
+                    continue;
+                }
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                workers.execute(() -> serveConnection(channel));
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                // Failed accept; keep listening
+            }
+        }
+    }
+    
+    private void serveConnection(SocketChannel channel) {
+        ByteBuffer request = acquire(ReaderFrame.REQUEST_BYTES);
+        ByteBuffer response = acquire(ReaderFrame.RESPONSE_BYTES);
+        byte[] scratch = new byte[ReaderFrame.TICKET_ID_BYTES];
+        try (channel) {
+            while (running) {
+                request.clear();
+                while (request.hasRemaining()) {
+                    if (channel.read(request) < 0) {
+                        return;
+                    }
+                }
+                handle(request, response, scratch);
+                while (response.hasRemaining()) {
+                    channel.write(response);
+                }
+            }
+        } catch (IOException e) {
+            // Reader disconnected
+        } finally {
+            release(request);
+            release(response);
+            connections.decrementAndGet();
+        }
+    }
+    
+    private void serveDatagrams() {
+        while (running) {
+            ByteBuffer request = acquire(ReaderFrame.REQUEST_BYTES);
+            try {
+                SocketAddress sender = udpChannel.receive(request);
+                // The receive thread only reads; the fsync wait happens on a worker
+                udpWorkers.execute(() -> answerDatagram(request, sender));
+            } catch (RejectedExecutionException e) {
+                release(request);
+            } catch (ClosedChannelException e) {
+                release(request);
+                return;
+            } catch (IOException e) {
+                release(request);
+            }
+        }
+    }
+    
+    private void answerDatagram(ByteBuffer request, SocketAddress sender) {
+        ByteBuffer response = acquire(ReaderFrame.RESPONSE_BYTES);
+        try {
+            if (request.position() != ReaderFrame.REQUEST_BYTES) {
+                ReaderFrame.writeResponse(response, request, ReaderFrame.TYPE_SCAN_RESULT,
+                        ReaderFrame.STATUS_MALFORMED, 0, null);
+            } else {
+                handle(request, response, new byte[ReaderFrame.TICKET_ID_BYTES]);
+            }
+            udpChannel.send(response, sender);
+        } catch (IOException e) {
+            // Unreachable sender or closed channel; drop the reply
+        } finally {
+            release(request);
+            release(response);
+        }
+    }
+    
+    private void handle(ByteBuffer request, ByteBuffer response, byte[] scratch) {
+        if (!ReaderFrame.isValidHeader(request)) {
+            ReaderFrame.writeResponse(response, request, ReaderFrame.TYPE_SCAN_RESULT, ReaderFrame.STATUS_MALFORMED, 0, null);
+            return;
+        }
+        String readerId = ReaderFrame.readAscii(request, ReaderFrame.READER_ID_OFFSET, ReaderFrame.READER_ID_BYTES, scratch);
+        if (!isAuthentic(readerId, request)) {
+            ReaderFrame.writeResponse(response, request, ReaderFrame.TYPE_SCAN_RESULT, ReaderFrame.STATUS_UNAUTHORIZED, 0, null);
+            return;
+        }
+        if (ReaderFrame.type(request) == ReaderFrame.TYPE_HEARTBEAT) {
+            ReaderFrame.writeResponse(response, request, ReaderFrame.TYPE_HEARTBEAT_ACK, ReaderFrame.STATUS_ACCEPTED, 0, null);
+            return;
+        }
+        
+        RFIDDto.RFIDScanRequest scanRequest = new RFIDDto.RFIDScanRequest(
+            request.getLong(ReaderFrame.BUS_ID_OFFSET),
+            readerId,
+            ReaderFrame.readAscii(request, ReaderFrame.TICKET_ID_OFFSET, ReaderFrame.TICKET_ID_BYTES, scratch),
+            ReaderFrame.readAscii(request, ReaderFrame.LOCATION_OFFSET, ReaderFrame.LOCATION_BYTES, scratch)
+        );
+        if (scanRequest.getTicketId() == null) {
+            ReaderFrame.writeResponse(response, request, ReaderFrame.TYPE_SCAN_RESULT, ReaderFrame.STATUS_MALFORMED, 0, null);
+            return;
+        }
+        
+        try {
+            RFIDDto.RFIDScanResponse result = rfidGatewayService.processRFIDScan(scanRequest);
+            long passengerId = result.getPassengerId() != null ? result.getPassengerId() : 0;
+            ReaderFrame.writeResponse(response, request, ReaderFrame.TYPE_SCAN_RESULT,
+                    status(result.getResult()), passengerId, result.getSeatNumber());
+        } catch (RuntimeException e) {
+            ReaderFrame.writeResponse(response, request, ReaderFrame.TYPE_SCAN_RESULT, ReaderFrame.STATUS_ERROR, 0, null);
+        }
+    }
+    
+    private boolean isAuthentic(String readerId, ByteBuffer request) {
+        SecretKeySpec key = readerId != null ? keys.get(readerId) : null;
+        if (key == null) {
+            return false;
+        }
+        Mac mac = macs.get();
+        try {
+            mac.init(key);
+        } catch (InvalidKeyException e) {
+            return false;
+        }
+        return ReaderFrame.isAuthentic(request, mac);
+    }
+    
+    private static Mac newMac() {
+        try {
+            return Mac.getInstance(MAC_ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(MAC_ALGORITHM + " is not available", e);
+        }
+    }
+    
+    private static byte status(RFIDDto.ScanResult result) {
+        switch (result) {
+            case ACCEPTED:
+                return ReaderFrame.STATUS_ACCEPTED;
+            case INVALID_TICKET:
+                return ReaderFrame.STATUS_INVALID_TICKET;
+            case UNKNOWN_TICKET:
+                return ReaderFrame.STATUS_UNKNOWN_TICKET;
+            case RATE_LIMITED:
+                return ReaderFrame.STATUS_RATE_LIMITED;
+            case LOST_ITEM:
+                return ReaderFrame.STATUS_LOST_ITEM;
+            case INVALID_REQUEST:
+                return ReaderFrame.STATUS_MALFORMED;
+            default:
+                return ReaderFrame.STATUS_ERROR;
+        }
+    }
+    
+    private ByteBuffer acquire(int size) {
+        // Every pooled buffer is request-sized, which also fits a response
+        ByteBuffer buffer = bufferPool.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(ReaderFrame.REQUEST_BYTES);
+        }
+        buffer.clear().limit(size);
+        return buffer;
+    }
+    
+    private void release(ByteBuffer buffer) {
+        bufferPool.offer(buffer);
+    }
+}
+
@@ -0,0 +1,82 @@
+package com.smartbus2plus.rfid.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Time-windowed memory of recently seen keys, as a ring of hash maps.
+ * Each map covers one slice of the window; advancing the clock clears the slices that
+ * fell out of it, so an entry lives between (buckets - 1) and buckets slices. Each
+ * slice holds at most a fixed number of keys and clearing keeps its table, so memory
+ * stays flat however fast scans arrive.
+ */
+public class DedupWindow<V> {
+    
+    private final Map<String, V>[] buckets;
+    private final long bucketMillis;
+    private final int maxKeysPerBucket;
+    private long currentSlot;
+    
+    @SuppressWarnings("unchecked")
+    public DedupWindow(long windowMillis, int bucketCount, int maxKeysPerBucket) {
+        this.buckets = new Map[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new HashMap<>();
+        }
+        this.bucketMillis = Math.max(1, windowMillis / bucketCount);
+        this.maxKeysPerBucket = maxKeysPerBucket;
+    }
+    
+    public synchronized V get(String key, long nowMillis) {
+        advance(nowMillis);
+        for (Map<String, V> bucket : buckets) {
+            V value = bucket.get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+    
+    public synchronized void put(String key, V value, long nowMillis) {
+        advance(nowMillis);
+        Map<String, V> bucket = buckets[(int) (currentSlot % buckets.length)];
+        // A full slice stops remembering rather than growing; duplicates then pass through
+        if (bucket.size() < maxKeysPerBucket || bucket.containsKey(key)) {
+            bucket.put(key, value);
+        }
+    }
+    
+    /**
+     * Remembers the value unless the key is already in the window; returns the value already there, or null
+     */
+    public synchronized V putIfAbsent(String key, V value, long nowMillis) {
+        V existing = get(key, nowMillis);
+        if (existing == null) {
+            put(key, value, nowMillis);
+        }
+        return existing;
+    }
+    
+    /**
+     * Forgets the key if it still maps to the given value
+     */
+    public synchronized void remove(String key, V value) {
+        for (Map<String, V> bucket : buckets) {
+            bucket.remove(key, value);
+        }
+    }
+    
+    private void advance(long nowMillis) {
+        long slot = nowMillis / bucketMillis;
+        if (slot <= currentSlot) {
+            return;
+        }
+        long stale = Math.min(slot - currentSlot, buckets.length);
+        for (long s = slot - stale + 1; s <= slot; s++) {
+            buckets[(int) (s % buckets.length)].clear();
+        }
+        currentSlot = slot;
+    }
+}
+
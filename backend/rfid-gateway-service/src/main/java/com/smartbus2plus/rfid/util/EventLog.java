@@ -0,0 +1,299 @@
+package com.smartbus2plus.rfid.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of offset-addressed records in fixed-size memory-mapped segments.
+ * Each record carries its offset and a non-decreasing log timestamp; a sparse in-memory
+ * index per segment makes reads from an offset or from a point in time a short forward
+ * scan. Old segments are dropped whole once the configured count is exceeded.
+ */
+public class EventLog implements Closeable {
+    
+    private static final String SUFFIX = ".log";
+    private static final int HEADER_BYTES = 24; // length, CRC32C, offset, timestamp
+    private static final int INDEX_INTERVAL = 64; // records between sparse index entries
+    
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final List<Segment> segments = new ArrayList<>();
+    private final CRC32C crc = new CRC32C();
+    private long nextOffset;
+    private long lastTimestamp;
+    
+    public EventLog(Path directory, int segmentBytes, int maxSegments) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        Files.createDirectories(directory);
+        
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+        for (Path file : files) {
+            Segment segment = openSegment(file, baseOffset(file));
+            segment.recover();
+            segments.add(segment);
+            nextOffset = segment.nextOffset;
+            lastTimestamp = Math.max(lastTimestamp, segment.lastTimestamp);
+        }
+        if (segments.isEmpty()) {
+            roll();
+        }
+    }
+    
+    /**
+     * Appends a record and returns its offset; the timestamp is clamped so it never goes backwards
+     */
+    public synchronized long append(long timestamp, byte[] payload) throws IOException {
+        if (HEADER_BYTES + payload.length > segmentBytes) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes does not fit a segment");
+        }
+        Segment active = segments.get(segments.size() - 1);
+        if (active.size + HEADER_BYTES + payload.length > segmentBytes) {
+            active = roll();
+        }
+        lastTimestamp = Math.max(lastTimestamp, timestamp);
+        crc.reset();
+        crc.update(payload);
+        active.write(nextOffset, lastTimestamp, (int) crc.getValue(), payload);
+        return nextOffset++;
+    }
+    
+    /**
+     * Forces appended records to disk
+     */
+    public synchronized void flush() {
+        Segment active = segments.get(segments.size() - 1);
+        active.buffer.force(0, active.size);
+    }
+    
+    public synchronized long getStartOffset() {
+        return segments.get(0).baseOffset;
+    }
+    
+    public synchronized long getEndOffset() {
+        return nextOffset;
+    }
+    
+    public synchronized long getStartTimestamp() {
+        Segment first = segments.get(0);
+        return first.recordCount > 0 ? first.firstTimestamp : Long.MAX_VALUE;
+    }
+    
+    /**
+     * Up to maxRecords records starting at the given offset (or the oldest retained one)
+     */
+    public synchronized List<Record> read(long fromOffset, int maxRecords) {
+        List<Record> records = new ArrayList<>();
+        long offset = Math.max(fromOffset, getStartOffset());
+        for (int i = indexOfSegment(offset); i < segments.size() && records.size() < maxRecords; i++) {
+            segments.get(i).read(offset, maxRecords - records.size(), records);
+        }
+        return records;
+    }
+    
+    /**
+     * Offset of the first record logged at or after the given time, or the end offset if none
+     */
+    public synchronized long offsetForTimestamp(long timestamp) {
+        for (Segment segment : segments) {
+            if (segment.recordCount > 0 && segment.lastTimestamp >= timestamp) {
+                return segment.offsetForTimestamp(timestamp);
+            }
+        }
+        return nextOffset;
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        for (Segment segment : segments) {
+            segment.channel.close();
+        }
+    }
+    
+    private Segment roll() throws IOException {
+        if (!segments.isEmpty()) {
+            Segment sealed = segments.get(segments.size() - 1);
+            sealed.buffer.force(0, sealed.size);
+        }
+        Segment segment = openSegment(directory.resolve(String.format("%020d%s", nextOffset, SUFFIX)), nextOffset);
+        segments.add(segment);
+        while (segments.size() > maxSegments) {
+            Segment oldest = segments.remove(0);
+            oldest.channel.close();
+            Files.deleteIfExists(oldest.path);
+        }
+        return segment;
+    }
+    
+    private int indexOfSegment(long offset) {
+        int index = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            if (segments.get(i).baseOffset <= offset) {
+                index = i;
+            }
+        }
+        return index;
+    }
+    
+    private Segment openSegment(Path path, long baseOffset) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        return new Segment(path, channel, buffer, baseOffset);
+    }
+    
+    private static long baseOffset(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+    
+    private static final class Segment {
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final long baseOffset;
+        // Sparse index: offset, position and timestamp of every INDEX_INTERVAL-th record
+        private final List<long[]> index = new ArrayList<>();
+        private int size;
+        private long nextOffset;
+        private long recordCount;
+        private long firstTimestamp;
+        private long lastTimestamp;
+        
+        Segment(Path path, FileChannel channel, MappedByteBuffer buffer, long baseOffset) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.baseOffset = baseOffset;
+            this.nextOffset = baseOffset;
+        }
+        
+        void write(long offset, long timestamp, int checksum, byte[] payload) {
+            int position = size;
+            buffer.putInt(position, payload.length);
+            buffer.putInt(position + 4, checksum);
+            buffer.putLong(position + 8, offset);
+            buffer.putLong(position + 16, timestamp);
+            buffer.put(position + HEADER_BYTES, payload);
+            indexRecord(offset, position, timestamp);
+            size = position + HEADER_BYTES + payload.length;
+            nextOffset = offset + 1;
+        }
+        
+        /**
+         * Rebuilds the index and finds the end of a segment; a torn record from a crash ends it
+         */
+        void recover() {
+            CRC32C checksum = new CRC32C();
+            int position = 0;
+            while (position + HEADER_BYTES <= buffer.capacity()) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || position + HEADER_BYTES + length > buffer.capacity()) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                buffer.get(position + HEADER_BYTES, payload);
+                checksum.reset();
+                checksum.update(payload);
+                if ((int) checksum.getValue() != buffer.getInt(position + 4)) {
+                    break;
+                }
+                long offset = buffer.getLong(position + 8);
+                indexRecord(offset, position, buffer.getLong(position + 16));
+                nextOffset = offset + 1;
+                position += HEADER_BYTES + length;
+            }
+            size = position;
+        }
+        
+        void read(long fromOffset, int maxRecords, List<Record> records) {
+            int position = positionFor(fromOffset);
+            int added = 0;
+            while (position < size && added < maxRecords) {
+                int length = buffer.getInt(position);
+                long offset = buffer.getLong(position + 8);
+                if (offset >= fromOffset) {
+                    byte[] payload = new byte[length];
+                    buffer.get(position + HEADER_BYTES, payload);
+                    records.add(new Record(offset, buffer.getLong(position + 16), payload));
+                    added++;
+                }
+                position += HEADER_BYTES + length;
+            }
+        }
+        
+        long offsetForTimestamp(long timestamp) {
+            int position = 0;
+            for (long[] entry : index) {
+                if (entry[2] >= timestamp) {
+                    break;
+                }
+                position = (int) entry[1];
+            }
+            while (position < size) {
+                if (buffer.getLong(position + 16) >= timestamp) {
+                    return buffer.getLong(position + 8);
+                }
+                position += HEADER_BYTES + buffer.getInt(position);
+            }
+            return nextOffset;
+        }
+        
+        private int positionFor(long offset) {
+            int position = 0;
+            for (long[] entry : index) {
+                if (entry[0] > offset) {
+                    break;
+                }
+                position = (int) entry[1];
+            }
+            return position;
+        }
+        
+        private void indexRecord(long offset, int position, long timestamp) {
+            if (recordCount == 0) {
+                firstTimestamp = timestamp;
+            }
+            if (recordCount % INDEX_INTERVAL == 0) {
+                index.add(new long[] { offset, position, timestamp });
+            }
+            lastTimestamp = timestamp;
+            recordCount++;
+        }
+    }
+    
+    /**
+     * One logged record
+     */
+    public static final class Record {
+        private final long offset;
+        private final long timestamp;
+        private final byte[] payload;
+        
+        Record(long offset, long timestamp, byte[] payload) {
+            this.offset = offset;
+            this.timestamp = timestamp;
+            this.payload = payload;
+        }
+        
+        public long getOffset() { return offset; }
+        
+        public long getTimestamp() { return timestamp; }
+        
+        public byte[] getPayload() { return payload; }
+    }
+}
+
@@ -0,0 +1,231 @@
+package com.smartbus2plus.rfid.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Linear-probing hash index from string keys (ticket IDs, tag IDs) to values.
+ * Keys and values live in two flat arrays kept at most half full, so a lookup is a
+ * hash, a few adjacent array reads and no allocation. Reads are optimistic and only
+ * fall back to a read lock when they race a writer; deletes shift entries back
+ * instead of leaving tombstones. Both arrays sit in one table object published through a
+ * volatile field, so an optimistic read always sees keys and values of the same size.
+ */
+public class OpenAddressingIndex<V> {
+    
+    private static final int MIN_CAPACITY = 16;
+    
+    private final StampedLock lock = new StampedLock();
+    private volatile Table table;
+    private int size;
+    
+    public OpenAddressingIndex() {
+        this(MIN_CAPACITY);
+    }
+    
+    public OpenAddressingIndex(int expectedSize) {
+        int capacity = tableSizeFor(expectedSize);
+        this.table = new Table(capacity);
+    }
+    
+    public V get(String key) {
+        if (key == null) {
+            return null;
+        }
+        long stamp = lock.tryOptimisticRead();
+        V value = find(table, key);
+        if (lock.validate(stamp)) {
+            return value;
+        }
+        stamp = lock.readLock();
+        try {
+            return find(table, key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    public boolean containsKey(String key) {
+        return get(key) != null;
+    }
+    
+    public V put(String key, V value) {
+        if (key == null || value == null) {
+            throw new IllegalArgumentException("Keys and values must not be null");
+        }
+        long stamp = lock.writeLock();
+        try {
+            if ((size + 1) * 2 > table.keys.length) {
+                resize(table.keys.length * 2);
+            }
+            String[] keys = table.keys;
+            Object[] values = table.values;
+            int mask = keys.length - 1;
+            for (int i = hash(key) & mask; ; i = (i + 1) & mask) {
+                if (keys[i] == null) {
+                    keys[i] = key;
+                    values[i] = value;
+                    size++;
+                    return null;
+                }
+                if (keys[i].equals(key)) {
+                    V previous = cast(values[i]);
+                    values[i] = value;
+                    return previous;
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    public V remove(String key) {
+        if (key == null) {
+            return null;
+        }
+        long stamp = lock.writeLock();
+        try {
+            String[] keys = table.keys;
+            Object[] values = table.values;
+            int mask = keys.length - 1;
+            int i = hash(key) & mask;
+            while (keys[i] != null && !keys[i].equals(key)) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == null) {
+                return null;
+            }
+            V previous = cast(values[i]);
+            
+            // Backward-shift deletion keeps every remaining key reachable from its home slot
+            int hole = i;
+            for (int j = (hole + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+                int home = hash(keys[j]) & mask;
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    keys[hole] = keys[j];
+                    values[hole] = values[j];
+                    hole = j;
+                }
+            }
+            keys[hole] = null;
+            values[hole] = null;
+            size--;
+            return previous;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+    
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    public List<V> values() {
+        long stamp = lock.readLock();
+        try {
+            List<V> result = new ArrayList<>(size);
+            for (Object value : table.values) {
+                if (value != null) {
+                    result.add(cast(value));
+                }
+            }
+            return result;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    /**
+     * Value in the first occupied slot at or after the given position, for sampling
+     */
+    public V valueNear(int position) {
+        long stamp = lock.readLock();
+        try {
+            if (size == 0) {
+                return null;
+            }
+            Object[] values = table.values;
+            int mask = values.length - 1;
+            for (int i = position & mask; ; i = (i + 1) & mask) {
+                if (values[i] != null) {
+                    return cast(values[i]);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+    
+    private V find(Table table, String key) {
+        String[] keys = table.keys;
+        Object[] values = table.values;
+        int mask = keys.length - 1;
+        // Bounded by the table length so a torn optimistic read can never spin forever
+        for (int probes = 0, i = hash(key) & mask; probes < keys.length; probes++, i = (i + 1) & mask) {
+            String candidate = keys[i];
+            if (candidate == null) {
+                return null;
+            }
+            if (candidate.equals(key)) {
+                return cast(values[i]);
+            }
+        }
+        return null;
+    }
+    
+    private void resize(int capacity) {
+        String[] oldKeys = table.keys;
+        Object[] oldValues = table.values;
+        Table resized = new Table(capacity);
+        String[] keys = resized.keys;
+        Object[] values = resized.values;
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != null) {
+                int i = hash(oldKeys[j]) & mask;
+                while (keys[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+        // Published only once filled, with a single write
+        table = resized;
+    }
+    
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+    
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private static <V> V cast(Object value) {
+        return (V) value;
+    }
+    
+    private static final class Table {
+        private final String[] keys;
+        private final Object[] values;
+        
+        Table(int capacity) {
+            this.keys = new String[capacity];
+            this.values = new Object[capacity];
+        }
+    }
+}
+
@@ -0,0 +1,110 @@
+package com.smartbus2plus.rfid.util;
+
+import javax.crypto.Mac;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Fixed-size binary frames exchanged with RFID reader hardware (big-endian).
+ *
+ * Request, 80 bytes:
+ *   0 magic 'SB' (u16) | 2 version (u8) | 3 type (u8) | 4 sequence (u32) | 8 bus id (u64)
+ *   16 reader id (16 ASCII) | 32 ticket id (24 ASCII) | 56 location (8 ASCII)
+ *   64 MAC (first 16 bytes of HMAC-SHA256 over bytes 0-63, keyed per reader)
+ *
+ * Response, 32 bytes:
+ *   0 magic (u16) | 2 version (u8) | 3 type (u8) | 4 sequence (u32) | 8 status (u8)
+ *   9 reserved (3) | 12 passenger id (u64, 0 if none) | 20 seat number (8 ASCII) | 28 reserved (4)
+ *
+ * ASCII fields are zero-padded; the sequence number is echoed so readers can match replies.
+ */
+public final class ReaderFrame {
+    
+    public static final int REQUEST_BYTES = 80;
+    public static final int RESPONSE_BYTES = 32;
+    
+    public static final short MAGIC = 0x5342;
+    public static final byte VERSION = 2;
+    
+    public static final byte TYPE_SCAN = 0x01;
+    public static final byte TYPE_HEARTBEAT = 0x02;
+    public static final byte TYPE_SCAN_RESULT = (byte) 0x81;
+    public static final byte TYPE_HEARTBEAT_ACK = (byte) 0x82;
+    
+    public static final byte STATUS_ACCEPTED = 0;
+    public static final byte STATUS_INVALID_TICKET = 1;
+    public static final byte STATUS_UNKNOWN_TICKET = 2;
+    public static final byte STATUS_RATE_LIMITED = 3;
+    public static final byte STATUS_MALFORMED = 4;
+    public static final byte STATUS_ERROR = 5;
+    public static final byte STATUS_LOST_ITEM = 6;
+    public static final byte STATUS_UNAUTHORIZED = 7;
+    
+    public static final int BUS_ID_OFFSET = 8;
+    public static final int READER_ID_OFFSET = 16;
+    public static final int READER_ID_BYTES = 16;
+    public static final int TICKET_ID_OFFSET = 32;
+    public static final int TICKET_ID_BYTES = 24;
+    public static final int LOCATION_OFFSET = 56;
+    public static final int LOCATION_BYTES = 8;
+    public static final int MAC_OFFSET = 64;
+    public static final int MAC_BYTES = 16;
+    
+    private static final int SEAT_BYTES = 8;
+    
+    private ReaderFrame() {}
+    
+    public static boolean isValidHeader(ByteBuffer request) {
+        return request.getShort(0) == MAGIC && request.get(2) == VERSION;
+    }
+    
+    public static byte type(ByteBuffer request) {
+        return request.get(3);
+    }
+    
+    /**
+     * Checks the frame's MAC with a Mac already initialised with the sending reader's key
+     */
+    public static boolean isAuthentic(ByteBuffer request, Mac mac) {
+        mac.update(request.duplicate().position(0).limit(MAC_OFFSET));
+        byte[] expected = mac.doFinal();
+        // Constant time, so the MAC cannot be guessed byte by byte from reply timings
+        int diff = 0;
+        for (int i = 0; i < MAC_BYTES; i++) {
+            diff |= expected[i] ^ request.get(MAC_OFFSET + i);
+        }
+        return diff == 0;
+    }
+    
+    /**
+     * Decodes a zero-padded ASCII field, or null if it is empty
+     */
+    public static String readAscii(ByteBuffer frame, int offset, int length, byte[] scratch) {
+        int size = 0;
+        while (size < length) {
+            byte b = frame.get(offset + size);
+            if (b == 0) {
+                break;
+            }
+            scratch[size++] = b;
+        }
+        return size > 0 ? new String(scratch, 0, size, StandardCharsets.US_ASCII) : null;
+    }
+    
+    /**
+     * Writes a response into the (reused) buffer and flips it for sending
+     */
+    public static void writeResponse(ByteBuffer response, ByteBuffer request, byte type, byte status,
+                                     long passengerId, String seatNumber) {
+        response.clear();
+        response.putShort(MAGIC).put(VERSION).put(type).putInt(request.getInt(4))
+                .put(status).put((byte) 0).put((byte) 0).put((byte) 0)
+                .putLong(passengerId);
+        for (int i = 0; i < SEAT_BYTES; i++) {
+            response.put(seatNumber != null && i < seatNumber.length() ? (byte) seatNumber.charAt(i) : 0);
+        }
+        response.putInt(0);
+        response.flip();
+    }
+}
+
@@ -0,0 +1,68 @@
+package com.smartbus2plus.rfid.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Hashed timer wheel: tasks hash into a fixed ring of slots by deadline tick, and each
+ * tick only inspects its own slot. Scheduling is O(1) and a tick costs the tasks due in
+ * it, not the number of tasks pending; deadlines beyond one revolution wait extra rounds.
+ */
+public class TimerWheel<T> {
+    
+    private final long tickMillis;
+    private final List<Entry<T>>[] slots;
+    private long currentTick;
+    
+    @SuppressWarnings("unchecked")
+    public TimerWheel(long tickMillis, int slotCount, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.slots = new List[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            slots[i] = new LinkedList<>();
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+    
+    public synchronized void schedule(T task, long deadlineMillis) {
+        // Overdue tasks fire on the next tick
+        long tick = Math.max(deadlineMillis / tickMillis, currentTick + 1);
+        long rounds = (tick - currentTick - 1) / slots.length;
+        slots[(int) (tick % slots.length)].add(new Entry<>(task, rounds));
+    }
+    
+    /**
+     * Moves the wheel up to the given time and returns every task that came due
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        List<T> due = new ArrayList<>();
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            Iterator<Entry<T>> iterator = slots[(int) (currentTick % slots.length)].iterator();
+            while (iterator.hasNext()) {
+                Entry<T> entry = iterator.next();
+                if (entry.rounds == 0) {
+                    due.add(entry.task);
+                    iterator.remove();
+                } else {
+                    entry.rounds--;
+                }
+            }
+        }
+        return due;
+    }
+    
+    private static final class Entry<T> {
+        private final T task;
+        private long rounds;
+        
+        Entry(T task, long rounds) {
+            this.task = task;
+            this.rounds = rounds;
+        }
+    }
+}
+
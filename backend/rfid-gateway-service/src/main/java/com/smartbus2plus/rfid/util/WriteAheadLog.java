@@ -0,0 +1,192 @@
+package com.smartbus2plus.rfid.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Segmented append-only log of length-prefixed, checksummed records.
+ * Appends are cheap and ordered; {@link #sync} makes a record durable and lets one fsync
+ * cover every caller waiting on the same segment (group commit). Sealed segments are
+ * deleted by the owner once their records are safely stored elsewhere.
+ */
+public class WriteAheadLog implements Closeable {
+    
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".wal";
+    private static final int HEADER_BYTES = 8; // length + CRC32C
+    
+    private final Path directory;
+    private final boolean fsync;
+    private final List<Path> recoveredSegments;
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    private final CRC32C crc = new CRC32C();
+    private Segment active;
+    private long nextSegment;
+    
+    public WriteAheadLog(Path directory, boolean fsync) throws IOException {
+        this.directory = directory;
+        this.fsync = fsync;
+        Files.createDirectories(directory);
+        this.recoveredSegments = listSegments(directory);
+        this.nextSegment = recoveredSegments.isEmpty() ? 0 : segmentNumber(recoveredSegments.get(recoveredSegments.size() - 1)) + 1;
+        this.active = openSegment();
+    }
+    
+    /**
+     * Segments left over from a previous run, oldest first
+     */
+    public List<Path> getRecoveredSegments() {
+        return recoveredSegments;
+    }
+    
+    public synchronized Position append(byte[] record) throws IOException {
+        crc.reset();
+        crc.update(record);
+        header.clear();
+        header.putInt(record.length).putInt((int) crc.getValue()).flip();
+        
+        ByteBuffer[] buffers = { header, ByteBuffer.wrap(record) };
+        long remaining = HEADER_BYTES + record.length;
+        while (remaining > 0) {
+            remaining -= active.channel.write(buffers);
+        }
+        active.written += HEADER_BYTES + record.length;
+        return new Position(active, active.written);
+    }
+    
+    /**
+     * Blocks until the record at the given position is on stable storage
+     */
+    public void sync(Position position) throws IOException {
+        Segment segment = position.segment;
+        if (!fsync || segment.synced >= position.offset) {
+            return;
+        }
+        synchronized (segment) {
+            // Whoever gets here first forces everything written so far for the others too
+            if (segment.synced < position.offset) {
+                long target = segment.written;
+                segment.channel.force(false);
+                segment.synced = target;
+            }
+        }
+    }
+    
+    /**
+     * Closes the active segment and starts a new one; returns the sealed segment's path
+     */
+    public synchronized Path seal() throws IOException {
+        Segment sealed = active;
+        active = openSegment();
+        synchronized (sealed) {
+            if (fsync) {
+                sealed.channel.force(false);
+            }
+            sealed.synced = sealed.written;
+            sealed.channel.close();
+        }
+        return sealed.path;
+    }
+    
+    public void delete(Path segment) throws IOException {
+        Files.deleteIfExists(segment);
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        if (fsync) {
+            active.channel.force(false);
+        }
+        active.channel.close();
+    }
+    
+    /**
+     * Reads every intact record of a segment; a torn or corrupt tail from a crash ends the read
+     */
+    public static List<byte[]> readRecords(Path segment) throws IOException {
+        List<byte[]> records = new ArrayList<>();
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(segment));
+        CRC32C checksum = new CRC32C();
+        while (data.remaining() >= HEADER_BYTES) {
+            int length = data.getInt();
+            int expected = data.getInt();
+            if (length < 0 || length > data.remaining()) {
+                break;
+            }
+            byte[] record = new byte[length];
+            data.get(record);
+            checksum.reset();
+            checksum.update(record);
+            if ((int) checksum.getValue() != expected) {
+                break;
+            }
+            records.add(record);
+        }
+        return records;
+    }
+    
+    private Segment openSegment() throws IOException {
+        Path path = directory.resolve(String.format("%s%020d%s", PREFIX, nextSegment++, SUFFIX));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        if (fsync) {
+            // Make the new file's directory entry durable as well
+            try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+                dir.force(true);
+            } catch (IOException ignored) {
+                // Not supported on every platform; the file data itself is still forced
+            }
+        }
+        return new Segment(path, channel);
+    }
+    
+    private static List<Path> listSegments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+    
+    private static long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+    
+    private static final class Segment {
+        private final Path path;
+        private final FileChannel channel;
+        private volatile long written;
+        private volatile long synced;
+        
+        Segment(Path path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+    }
+    
+    /**
+     * Location of an appended record, used to wait for it to become durable
+     */
+    public static final class Position {
+        private final Segment segment;
+        private final long offset;
+        
+        private Position(Segment segment, long offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+    }
+}
+